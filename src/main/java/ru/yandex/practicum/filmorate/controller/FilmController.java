@@ -1,6 +1,8 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -10,7 +12,12 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmPage;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperationResult;
+import ru.yandex.practicum.filmorate.service.FilmPageService;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import javax.validation.Valid;
@@ -21,10 +28,27 @@ import java.util.List;
 @RequestMapping("/films")
 public class FilmController {
     private final FilmService filmService;
+    private final FilmPageService filmPageService;
 
     @GetMapping
-    public List<Film> getAllFilms() {
-        return filmService.getAllFilms();
+    public ResponseEntity<List<Film>> getAllFilms(@RequestParam(defaultValue = "0", required = false) int after,
+                                                  @RequestParam(defaultValue = "100", required = false) int limit,
+                                                  @RequestParam(defaultValue = "false", required = false) boolean all) {
+        if (all) {
+            return ResponseEntity.ok(filmService.getAllFilms());
+        }
+        List<Film> films = filmService.getFilms(after, limit);
+        if (films.size() < limit) {
+            return ResponseEntity.ok(films);
+        }
+        return ResponseEntity.ok()
+                .header("X-Next-Cursor", String.valueOf(films.get(films.size() - 1).getId()))
+                .body(films);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody exportFilms() {
+        return filmService::exportFilms;
     }
 
     @GetMapping("/{id}")
@@ -32,6 +56,12 @@ public class FilmController {
         return filmService.getFilmById(id);
     }
 
+    @GetMapping("/{id}/page")
+    public FilmPage getFilmPage(@PathVariable int id,
+                                @RequestParam(defaultValue = "10", required = false) int count) {
+        return filmPageService.getFilmPage(id, count);
+    }
+
     @DeleteMapping("/{id}")
     public Boolean deleteFilm(@PathVariable int id) {
         return filmService.deleteFilm(id);
@@ -62,14 +92,27 @@ public class FilmController {
         return filmService.removeLike(id, userId);
     }
 
+    @PostMapping("/likes")
+    public List<LikeOperationResult> updateLikes(@RequestBody List<LikeOperation> likes) {
+        return filmService.updateLikes(likes);
+    }
+
     @GetMapping("director/{directorId}")
     public List<Film> getFilmsByDirector(@PathVariable int directorId,
                                          @RequestParam(required = false, defaultValue = "likes") String sortBy) {
         return filmService.getFilmsByDirector(directorId, sortBy);
     }
 
+    @GetMapping("/search/suggest")
+    public List<String> suggestFilms(@RequestParam String prefix) {
+        return filmService.suggestFilms(prefix);
+    }
+
     @GetMapping("/search")
-    public List<Film> searchFilms(@RequestParam String query, @RequestParam String by) {
-        return filmService.searchFilms(query, by);
+    public List<Film> searchFilms(@RequestParam String query,
+                                  @RequestParam String by,
+                                  @RequestParam(defaultValue = "100", required = false) int limit,
+                                  @RequestParam(defaultValue = "0", required = false) int offset) {
+        return filmService.searchFilms(query, by, limit, offset);
     }
 }
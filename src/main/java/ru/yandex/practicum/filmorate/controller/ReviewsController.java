@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -14,7 +15,7 @@ import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.service.ReviewService;
 
 import javax.validation.Valid;
-import java.util.Collection;
+import java.util.List;
 
 @RestController
 @RequiredArgsConstructor
@@ -44,10 +45,17 @@ public class ReviewsController {
     }
 
     @GetMapping
-    public Collection<Review> getReviews(
+    public ResponseEntity<List<Review>> getReviews(
             @RequestParam(defaultValue = "-1",required = false) int filmId,
-            @RequestParam(defaultValue = "10", required = false) int count) {
-        return reviewService.getReviews(filmId, count);
+            @RequestParam(defaultValue = "10", required = false) int count,
+            @RequestParam(required = false) String cursor) {
+        List<Review> reviews = reviewService.getReviews(filmId, count, cursor);
+        if (reviews.size() < count) {
+            return ResponseEntity.ok(reviews);
+        }
+        return ResponseEntity.ok()
+                .header("X-Next-Cursor", ReviewService.makeCursor(reviews.get(reviews.size() - 1)))
+                .body(reviews);
     }
 
     @PutMapping("{id}/like/{userId}")
@@ -1,14 +1,19 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.yandex.practicum.filmorate.model.Feed;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
@@ -24,8 +29,19 @@ public class UserController {
     private final UserService userService;
 
     @GetMapping
-    public List<User> getAllUsers() {
-        return userService.getAllUsers();
+    public ResponseEntity<List<User>> getAllUsers(@RequestParam(defaultValue = "0", required = false) int after,
+                                                  @RequestParam(defaultValue = "100", required = false) int limit,
+                                                  @RequestParam(defaultValue = "false", required = false) boolean all) {
+        if (all) {
+            return ResponseEntity.ok(userService.getAllUsers());
+        }
+        List<User> users = userService.getUsers(after, limit);
+        if (users.size() < limit) {
+            return ResponseEntity.ok(users);
+        }
+        return ResponseEntity.ok()
+                .header("X-Next-Cursor", String.valueOf(users.get(users.size() - 1).getId()))
+                .body(users);
     }
 
     @GetMapping("/{id}")
@@ -72,8 +88,44 @@ public class UserController {
     public List<Film> receiveFilmRecommendations(@PathVariable int id) {
         return userService.receiveFilmRecommendations(id);
     }
+    @GetMapping("/{id}/timeline")
+    public ResponseEntity<List<Feed>> getTimeline(@PathVariable int id,
+                                                  @RequestParam(defaultValue = "" + Long.MAX_VALUE, required = false) long before,
+                                                  @RequestParam(defaultValue = "100", required = false) int limit) {
+        List<Feed> feeds = userService.getTimeline(id, before, limit);
+        if (feeds.size() < limit) {
+            return ResponseEntity.ok(feeds);
+        }
+        return ResponseEntity.ok()
+                .header("X-Next-Cursor", String.valueOf(feeds.get(feeds.size() - 1).getEventId()))
+                .body(feeds);
+    }
+
+    // Без since и limit возвращается вся лента, как до появления постраничного вывода.
     @GetMapping("/{id}/feed")
-    public List<Feed> getFeed(@PathVariable Integer id) {
-        return userService.getFeedByUserId(id);
+    public ResponseEntity<List<Feed>> getFeed(@PathVariable Integer id,
+                                              @RequestParam(required = false) Long since,
+                                              @RequestParam(required = false) Integer limit) {
+        if (since == null && limit == null) {
+            return ResponseEntity.ok(userService.getFeedByUserId(id));
+        }
+        if (limit == null) {
+            limit = 100;
+        }
+        List<Feed> feeds = userService.getFeedByUserId(id, since == null ? 0 : since, limit);
+        if (feeds.size() < limit) {
+            return ResponseEntity.ok(feeds);
+        }
+        return ResponseEntity.ok()
+                .header("X-Next-Cursor", String.valueOf(feeds.get(feeds.size() - 1).getEventId()))
+                .body(feeds);
+    }
+
+    // Заголовок Last-Event-ID браузер передает сам при переподключении, since — для первого подключения.
+    @GetMapping(value = "/{id}/feed/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamFeed(@PathVariable int id,
+                                 @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                                 @RequestParam(required = false) Long since) {
+        return userService.streamFeed(id, lastEventId != null ? lastEventId : since);
     }
 }
@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@Builder
+public class FilmPage {
+    private final Film film;
+    private final List<Review> reviews;
+    private final List<User> authors;
+}
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+import ru.yandex.practicum.filmorate.enums.Operation;
+
+@Getter
+@Setter
+@Builder
+public class LikeOperation {
+    private Integer filmId;
+    private Integer userId;
+    private Operation operation;
+}
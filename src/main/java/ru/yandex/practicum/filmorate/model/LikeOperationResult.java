@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Getter;
+import ru.yandex.practicum.filmorate.enums.Operation;
+
+@Getter
+@Builder
+public class LikeOperationResult {
+    private final Integer filmId;
+    private final Integer userId;
+    private final Operation operation;
+    private final boolean success;
+    private final String error;
+}
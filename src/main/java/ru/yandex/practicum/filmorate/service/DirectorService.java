@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.storage.director.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
 
 import java.util.List;
 
@@ -13,6 +14,8 @@ import java.util.List;
 @Slf4j
 public class DirectorService {
     private final DirectorStorage directorStorage;
+    private final FilmCache filmCache;
+    private final SearchService searchService;
 
     public Director createDirector(Director director) {
         log.info("Добавление режиссера {}", director);
@@ -21,12 +24,18 @@ public class DirectorService {
 
     public Director updateDirector(Director director) {
         log.info("Обновление режиссера {}", director);
-        return directorStorage.updateDirector(director);
+        Director updated = directorStorage.updateDirector(director);
+        filmCache.invalidateAll();
+        searchService.indexDirector(updated);
+        return updated;
     }
 
     public Boolean deleteDirector(int directorId) {
         log.info("Удаление режиссера {}", directorId);
-        return directorStorage.deleteDirector(directorId);
+        Boolean deleted = directorStorage.deleteDirector(directorId);
+        filmCache.invalidateAll();
+        searchService.removeDirector(directorId);
+        return deleted;
     }
 
     public Director getDirectorById(int directorId) {
@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.enums.EventType;
+import ru.yandex.practicum.filmorate.enums.Operation;
+import ru.yandex.practicum.filmorate.model.Feed;
+import ru.yandex.practicum.filmorate.storage.feed.FeedStorage;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+@Slf4j
+public class FeedCompactionService {
+    private final FeedStorage feedStorage;
+    private final ObjectMapper objectMapper;
+    private final long compactionHorizonDays;
+    private final long retentionDays;
+    private final Path archiveDir;
+    private final int batchSize;
+
+    // Id последнего события, проверенного при погашении пар.
+    private long lastCompactedEventId;
+
+    public FeedCompactionService(FeedStorage feedStorage,
+                                 ObjectMapper objectMapper,
+                                 @Value("${filmorate.feed.compaction-horizon-days}") long compactionHorizonDays,
+                                 @Value("${filmorate.feed.retention-days}") long retentionDays,
+                                 @Value("${filmorate.feed.archive-dir}") String archiveDir,
+                                 @Value("${filmorate.feed.archive-batch-size}") int batchSize) {
+        this.feedStorage = feedStorage;
+        this.objectMapper = objectMapper;
+        this.compactionHorizonDays = compactionHorizonDays;
+        this.retentionDays = retentionDays;
+        this.archiveDir = Paths.get(archiveDir);
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(cron = "${filmorate.feed.compaction-cron}")
+    public void run() {
+        Instant now = Instant.now();
+        int compacted = compact(now.minus(compactionHorizonDays, ChronoUnit.DAYS).toEpochMilli());
+        int archived = archive(now.minus(retentionDays, ChronoUnit.DAYS).toEpochMilli());
+        log.info("Лента событий: взаимно погашено {} событий, перенесено в архив {} событий.", compacted, archived);
+    }
+
+    // Удаляет пары «добавил - удалил» лайка или друга, в которых оба события старше горизонта.
+    // Удаление сопоставляется с последним еще не погашенным добавлением того же пользователя и объекта.
+    // Каждый запуск просматривает только события после уже проверенных, в порядке id.
+    public synchronized int compact(long beforeTimestamp) {
+        int deleted = 0;
+        List<Feed> page;
+        do {
+            page = feedStorage.findAfter(lastCompactedEventId, batchSize);
+            for (Feed feed : page) {
+                if (feed.getTimestamp() >= beforeTimestamp) {
+                    return deleted;
+                }
+                if (feed.getEventType() != EventType.REVIEW && feed.getOperation() == Operation.REMOVE) {
+                    Optional<Long> addedId = feedStorage.findLastAddedId(feed.getUserId(), feed.getEventType(),
+                            feed.getEntityId(), feed.getEventId());
+                    if (addedId.isPresent()) {
+                        deleted += feedStorage.deleteFeeds(List.of(addedId.get(), feed.getEventId()));
+                    }
+                }
+                lastCompactedEventId = feed.getEventId();
+            }
+        } while (page.size() == batchSize);
+        return deleted;
+    }
+
+    // Переносит события старше срока хранения в сжатые файлы по дням (feed-ГГГГ-ММ-ДД.ndjson.gz) и удаляет
+    // их из таблицы пачками. Каждая пачка дописывается в файл отдельным gzip-блоком, поэтому файл остается
+    // корректным архивом. Пачка удаляется только после записи на диск. Пачки читаются по возрастанию id
+    // после последнего перенесенного события, поэтому каждый запуск проходит таблицу один раз.
+    public int archive(long beforeTimestamp) {
+        int archived = 0;
+        long afterEventId = 0;
+        List<Feed> batch;
+        do {
+            batch = feedStorage.findBefore(afterEventId, beforeTimestamp, batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+            Map<LocalDate, List<Feed>> byDate = new TreeMap<>();
+            batch.forEach(feed -> byDate.computeIfAbsent(
+                    Instant.ofEpochMilli(feed.getTimestamp()).atOffset(ZoneOffset.UTC).toLocalDate(),
+                    date -> new ArrayList<>()).add(feed));
+            byDate.forEach(this::writeArchive);
+
+            List<Long> eventIds = new ArrayList<>();
+            batch.forEach(feed -> eventIds.add(feed.getEventId()));
+            archived += feedStorage.deleteFeeds(eventIds);
+            afterEventId = batch.get(batch.size() - 1).getEventId();
+        } while (batch.size() == batchSize);
+        return archived;
+    }
+
+    private void writeArchive(LocalDate date, List<Feed> feeds) {
+        try {
+            Files.createDirectories(archiveDir);
+            Path file = archiveDir.resolve("feed-" + date + ".ndjson.gz");
+            try (FileOutputStream fileStream = new FileOutputStream(file.toFile(), true);
+                 GZIPOutputStream gzipStream = new GZIPOutputStream(fileStream)) {
+                for (Feed feed : feeds) {
+                    gzipStream.write(objectMapper.writeValueAsBytes(feed));
+                    gzipStream.write('\n');
+                }
+                gzipStream.finish();
+                fileStream.getFD().sync();
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.extern.slf4j.Slf4j;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Feed;
 import ru.yandex.practicum.filmorate.enums.EventType;
 import ru.yandex.practicum.filmorate.storage.feed.FeedStorage;
@@ -18,14 +19,31 @@ public class FeedService {
 
     private final FeedStorage feedStorage;
 
+    public static final int MAX_PAGE_SIZE = 1000;
+
     public void add(int entityId, int userId,  EventType eventType, Operation operation) {
         log.info("Добавление в ленту операции {} типа {} от пользователя с id {}", operation, eventType, userId);
         long timestamp = Instant.now().toEpochMilli();
         feedStorage.addFeed(entityId, userId, timestamp, eventType, operation);
     }
 
+    public void addAll(List<Feed> feeds) {
+        log.info("Добавление в ленту {} операций", feeds.size());
+        long timestamp = Instant.now().toEpochMilli();
+        feeds.forEach(feed -> feed.setTimestamp(timestamp));
+        feedStorage.addFeeds(feeds);
+    }
+
     public List<Feed> getByUserId(int id) {
         log.info("Вывод пользователя с id {}", id);
         return feedStorage.findByUserId(id);
     }
+
+    public List<Feed> getByUserId(int id, long sinceEventId, int limit) {
+        log.info("Вывод {} событий ленты пользователя с id {} после события с id {}", limit, id, sinceEventId);
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        return feedStorage.findByUserId(id, sinceEventId, limit);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,302 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.model.Feed;
+import ru.yandex.practicum.filmorate.storage.feed.BufferedFeedStorage;
+import ru.yandex.practicum.filmorate.storage.feed.DbFeedStorage;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.stream.Collectors;
+
+// Рассылка новых событий ленты подписчикам по SSE. Слушатель записи ленты получает только что
+// записанные события с id, и один поток раскладывает их по очередям подписчиков автора без обращений
+// к базе. Каждую очередь отправляет своя задача, поэтому медленный клиент не задерживает остальных,
+// а при переполнении очереди он отключается и может переподключиться с Last-Event-ID.
+// Пропущенные события досылаются отдельным пулом, чтобы долгая досылка не задерживала рассылку.
+@Service
+@Slf4j
+public class FeedStreamService {
+    private static final int PAGE_SIZE = FeedService.MAX_PAGE_SIZE;
+    private static final int REPLAY_THREADS = 2;
+    private static final int QUEUE_CAPACITY = 1000;
+
+    private final DbFeedStorage dbFeedStorage;
+    private final BufferedFeedStorage bufferedFeedStorage;
+    private final long timeoutMs;
+    private final Map<Integer, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final ExecutorService publisher = Executors.newSingleThreadExecutor(daemon("feed-stream"));
+    private final ExecutorService replayer = Executors.newFixedThreadPool(REPLAY_THREADS, daemon("feed-replay"));
+    private final ExecutorService deliverer = Executors.newCachedThreadPool(daemon("feed-delivery"));
+
+    public FeedStreamService(DbFeedStorage dbFeedStorage,
+                             BufferedFeedStorage bufferedFeedStorage,
+                             @Value("${filmorate.feed.stream-timeout-ms}") long timeoutMs) {
+        this.dbFeedStorage = dbFeedStorage;
+        this.bufferedFeedStorage = bufferedFeedStorage;
+        this.timeoutMs = timeoutMs;
+    }
+
+    @PostConstruct
+    public void init() {
+        bufferedFeedStorage.addWriteListener(this::schedulePublish);
+    }
+
+    @PreDestroy
+    public void stop() {
+        publisher.shutdownNow();
+        replayer.shutdownNow();
+        deliverer.shutdownNow();
+        subscriptions.values().forEach(set -> set.forEach(subscription -> subscription.getEmitter().complete()));
+    }
+
+    // Без lastEventId клиент получает только новые события, с ним — сначала пропущенные после lastEventId.
+    // Подписка регистрируется до досылки, поэтому события, записанные во время досылки, не теряются.
+    public SseEmitter subscribe(int userId, Long lastEventId) {
+        log.info("Подписка на ленту пользователя с id {} после события с id {}", userId, lastEventId);
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscription subscription = new Subscription(userId, emitter, lastEventId != null);
+        emitter.onCompletion(() -> unsubscribe(subscription));
+        emitter.onTimeout(() -> unsubscribe(subscription));
+        emitter.onError(e -> unsubscribe(subscription));
+
+        subscriptions.computeIfAbsent(userId, id -> new CopyOnWriteArraySet<>()).add(subscription);
+        if (lastEventId != null) {
+            replayer.execute(() -> replay(subscription, lastEventId));
+        }
+        return emitter;
+    }
+
+    private void schedulePublish(List<Feed> feeds) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        publisher.execute(() -> publish(feeds));
+    }
+
+    private void publish(List<Feed> feeds) {
+        for (Feed feed : feeds) {
+            Set<Subscription> subscribers = subscriptions.get(feed.getUserId());
+            if (subscribers != null) {
+                subscribers.forEach(subscription -> deliver(subscription, feed));
+            }
+        }
+    }
+
+    // Пока идет досылка, новые события откладываются и отправляются после нее. Событие, уже
+    // досланное из базы, при поздней рассылке пропускается. Здесь нет отправки по сети, поэтому
+    // поток рассылки не блокируется на медленных клиентах.
+    private void deliver(Subscription subscription, Feed feed) {
+        boolean startDrain;
+        synchronized (subscription) {
+            if (subscription.isClosed()) {
+                return;
+            }
+            if (subscription.isReplaying()) {
+                if (subscription.getPending().size() >= QUEUE_CAPACITY) {
+                    disconnect(subscription);
+                } else {
+                    subscription.getPending().add(feed);
+                }
+                return;
+            }
+            if (subscription.getReplayed().remove(feed.getEventId())) {
+                return;
+            }
+            if (subscription.getQueue().size() >= QUEUE_CAPACITY) {
+                disconnect(subscription);
+                return;
+            }
+            subscription.getQueue().add(feed);
+            startDrain = subscription.startDraining();
+        }
+        if (startDrain) {
+            deliverer.execute(() -> drain(subscription));
+        }
+    }
+
+    // Отправляет очередь одного подписчика. Задача работает, пока очередь не опустеет, и блокируется
+    // только на своем клиенте.
+    private void drain(Subscription subscription) {
+        while (true) {
+            Feed feed;
+            synchronized (subscription) {
+                feed = subscription.getQueue().poll();
+                if (feed == null || subscription.isClosed()) {
+                    subscription.stopDraining();
+                    return;
+                }
+            }
+            send(subscription, feed);
+        }
+    }
+
+    // Отключает подписчика, который не успевает читать события. Завершение соединения может ждать
+    // зависшую отправку, поэтому выполняется не в потоке рассылки.
+    private void disconnect(Subscription subscription) {
+        log.warn("Очередь событий ленты пользователя с id {} переполнена, подписчик отключен.",
+                subscription.getUserId());
+        unsubscribe(subscription);
+        subscription.getQueue().clear();
+        deliverer.execute(() -> subscription.getEmitter().complete());
+    }
+
+    // Досылка отправляет события без блокировки подписчика: пока она идет, рассылка только
+    // откладывает новые события в pending. После досылки запоминаются только id последней
+    // страницы: рассылка может запоздать лишь для самых новых событий.
+    private void replay(Subscription subscription, long lastEventId) {
+        long afterId = lastEventId;
+        Set<Long> lastPage = new HashSet<>();
+        try {
+            List<Feed> feeds;
+            do {
+                feeds = dbFeedStorage.findByUserId(subscription.getUserId(), afterId, PAGE_SIZE);
+                if (!feeds.isEmpty()) {
+                    lastPage.clear();
+                }
+                for (Feed feed : feeds) {
+                    lastPage.add(feed.getEventId());
+                    send(subscription, feed);
+                    subscription.getReplayed().add(feed.getEventId());
+                    afterId = feed.getEventId();
+                }
+            } while (feeds.size() == PAGE_SIZE && !subscription.isClosed());
+        } catch (RuntimeException e) {
+            log.warn("Не удалось дослать события ленты пользователя с id {}.", subscription.getUserId(), e);
+        }
+        boolean startDrain;
+        synchronized (subscription) {
+            if (subscription.isClosed()) {
+                return;
+            }
+            for (Feed feed : subscription.getPending()) {
+                if (feed.getEventId() > lastEventId && !subscription.getReplayed().contains(feed.getEventId())) {
+                    subscription.getQueue().add(feed);
+                }
+            }
+            lastPage.removeAll(subscription.getPending().stream()
+                    .map(Feed::getEventId)
+                    .collect(Collectors.toSet()));
+            subscription.finishReplay(lastPage);
+            startDrain = !subscription.getQueue().isEmpty() && subscription.startDraining();
+        }
+        if (startDrain) {
+            deliverer.execute(() -> drain(subscription));
+        }
+    }
+
+    private void send(Subscription subscription, Feed feed) {
+        if (subscription.isClosed()) {
+            return;
+        }
+        try {
+            subscription.getEmitter().send(SseEmitter.event()
+                    .id(String.valueOf(feed.getEventId()))
+                    .data(feed, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Подписчик ленты пользователя с id {} отключился.", subscription.getUserId());
+            subscription.getEmitter().completeWithError(e);
+            unsubscribe(subscription);
+        }
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        subscription.close();
+        subscriptions.computeIfPresent(subscription.getUserId(), (id, set) -> {
+            set.remove(subscription);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static class Subscription {
+        private final int userId;
+        private final SseEmitter emitter;
+        private volatile boolean closed;
+        private boolean replaying;
+        private List<Feed> pending = new ArrayList<>();
+        private Set<Long> replayed = new HashSet<>();
+        private final Queue<Feed> queue = new ArrayDeque<>();
+        private boolean draining;
+
+        private Subscription(int userId, SseEmitter emitter, boolean replaying) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.replaying = replaying;
+        }
+
+        private int getUserId() {
+            return userId;
+        }
+
+        private SseEmitter getEmitter() {
+            return emitter;
+        }
+
+        private boolean isClosed() {
+            return closed;
+        }
+
+        private void close() {
+            closed = true;
+        }
+
+        private boolean isReplaying() {
+            return replaying;
+        }
+
+        private List<Feed> getPending() {
+            return pending;
+        }
+
+        private Set<Long> getReplayed() {
+            return replayed;
+        }
+
+        private Queue<Feed> getQueue() {
+            return queue;
+        }
+
+        private boolean startDraining() {
+            if (draining) {
+                return false;
+            }
+            draining = true;
+            return true;
+        }
+
+        private void stopDraining() {
+            draining = false;
+        }
+
+        private void finishReplay(Set<Long> replayedTail) {
+            replaying = false;
+            pending = null;
+            replayed = replayedTail;
+        }
+    }
+}
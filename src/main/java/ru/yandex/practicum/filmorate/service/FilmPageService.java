@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmPage;
+import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Страница фильма одним запросом: фильм читается в отдельном пуле, а отзывы и их авторы —
+// в потоке запроса. Пул и очередь ограничены; когда они заняты, фильм читается в потоке запроса.
+@Service
+@Slf4j
+public class FilmPageService {
+    private static final int LOADER_THREADS = 4;
+    private static final int LOADER_QUEUE_SIZE = 100;
+
+    private final FilmService filmService;
+    private final ReviewService reviewService;
+    private final UserStorage userStorage;
+    private final ThreadPoolExecutor loader = new ThreadPoolExecutor(LOADER_THREADS, LOADER_THREADS,
+            0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(LOADER_QUEUE_SIZE),
+            runnable -> {
+                Thread thread = new Thread(runnable, "film-page-loader");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
+    public FilmPageService(FilmService filmService, ReviewService reviewService, UserStorage userStorage) {
+        this.filmService = filmService;
+        this.reviewService = reviewService;
+        this.userStorage = userStorage;
+    }
+
+    @PreDestroy
+    public void stop() {
+        loader.shutdownNow();
+    }
+
+    public FilmPage getFilmPage(int filmId, int reviewsCount) {
+        log.info("Вывод страницы фильма с id {} с {} отзывами", filmId, reviewsCount);
+        CompletableFuture<Film> film = CompletableFuture.supplyAsync(() -> filmService.getFilmById(filmId), loader);
+        List<Review> reviews = reviewService.getReviews(filmId, reviewsCount, null);
+        Set<Integer> userIds = reviews.stream()
+                .map(Review::getUserId)
+                .collect(Collectors.toSet());
+        List<User> authors = userStorage.getUsersByIds(userIds);
+        try {
+            return FilmPage.builder()
+                    .film(film.join())
+                    .reviews(reviews)
+                    .authors(authors)
+                    .build();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exception.getCause();
+            }
+            throw exception;
+        }
+    }
+}
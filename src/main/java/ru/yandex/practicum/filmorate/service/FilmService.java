@@ -1,14 +1,36 @@
 package ru.yandex.practicum.filmorate.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Feed;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperationResult;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.review.ReviewCache;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static ru.yandex.practicum.filmorate.enums.EventType.LIKE;
 import static ru.yandex.practicum.filmorate.enums.Operation.ADD;
@@ -19,9 +41,16 @@ import static ru.yandex.practicum.filmorate.enums.Operation.REMOVE;
 @Slf4j
 public class FilmService {
     private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final RecommendationService recommendationService;
+    private final SearchService searchService;
     private final FeedService feedService;
+    private final ObjectMapper objectMapper;
+    private final ReviewCache reviewCache;
 
     public static final LocalDate FIRST_FILM_RELEASE_DATE = LocalDate.of(1895, 12, 28);
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_LIKES_BATCH_SIZE = 10000;
 
     private void validate(Film film) {
         if (film.getReleaseDate().isBefore(FIRST_FILM_RELEASE_DATE)) {
@@ -32,13 +61,17 @@ public class FilmService {
     public Film createFilm(Film film) {
         log.info("Добавление фильма {}", film);
         validate(film);
-        return filmStorage.createFilm(film);
+        Film created = filmStorage.createFilm(film);
+        searchService.indexFilm(created);
+        return created;
     }
 
     public Film updateFilm(Film film) {
         log.info("Обновление фильма {}", film);
         validate(film);
-        return filmStorage.updateFilm(film);
+        Film updated = filmStorage.updateFilm(film);
+        searchService.indexFilm(updated);
+        return updated;
     }
 
     public Film getFilmById(int filmId) {
@@ -48,7 +81,11 @@ public class FilmService {
 
     public Boolean deleteFilm(int id) {
         log.info("Удаление фильма с id {}", id);
-        return filmStorage.deleteFilm(id);
+        Boolean deleted = filmStorage.deleteFilm(id);
+        recommendationService.removeFilm(id);
+        searchService.removeFilm(id);
+        reviewCache.invalidate(id);
+        return deleted;
     }
 
     public List<Film> getAllFilms() {
@@ -56,25 +93,150 @@ public class FilmService {
         return filmStorage.getAllFilms();
     }
 
+    public void exportFilms(OutputStream outputStream) {
+        log.info("Выгрузка всех фильмов.");
+        filmStorage.exportFilms(film -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(film));
+                outputStream.write('\n');
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        });
+    }
+
+    public List<Film> getFilms(int afterId, int limit) {
+        log.info("Вывод {} фильмов после фильма с id {}.", limit, afterId);
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        return filmStorage.getFilms(afterId, limit);
+    }
+
+    // Существование фильма проверяется через основное хранилище, поэтому закэшированный фильм
+    // не требует запроса к базе.
+    private void checkFilmAndUserExist(int filmId, int userId) {
+        if (!filmStorage.existsFilm(filmId)) {
+            throw new NotFoundException("Фильма с таким id не существует.");
+        }
+        if (!userStorage.existsUser(userId)) {
+            throw new NotFoundException("Пользователя с таким id не существует.");
+        }
+    }
+
     public Boolean addLike(int filmId, int userId) {
         log.info("Добавляем лайк пользователя с id {} фильму с id {}.", userId, filmId);
+        checkFilmAndUserExist(filmId, userId);
         Boolean like = filmStorage.addLike(filmId, userId);
+        if (recommendationService.addLike(filmId, userId)) {
+            searchService.changeRates(Map.of(filmId, 1));
+        }
         feedService.add(filmId, userId, LIKE, ADD);
         return like;
     }
 
     public Boolean removeLike(int filmId, int userId) {
         log.info("Удаляем лайк пользователя с id {} фильму с id {}.", userId, filmId);
+        checkFilmAndUserExist(filmId, userId);
         Boolean like = filmStorage.removeLike(filmId, userId);
+        if (recommendationService.removeLike(filmId, userId)) {
+            searchService.changeRates(Map.of(filmId, -1));
+        }
         feedService.add(filmId, userId, LIKE, REMOVE);
         return like;
     }
 
+    @Transactional
+    public List<LikeOperationResult> updateLikes(List<LikeOperation> likes) {
+        log.info("Пакетное обновление {} лайков.", likes.size());
+        if (likes.size() > MAX_LIKES_BATCH_SIZE) {
+            throw new ValidationException("Количество операций в пакете не может быть больше " + MAX_LIKES_BATCH_SIZE);
+        }
+        Set<Integer> filmIds = filmStorage.findExistingFilmIds(likes.stream()
+                .map(LikeOperation::getFilmId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+        Set<Integer> userIds = userStorage.findExistingUserIds(likes.stream()
+                .map(LikeOperation::getUserId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+
+        List<LikeOperationResult> results = new ArrayList<>();
+        Map<List<Integer>, LikeOperation> finalLikes = new LinkedHashMap<>();
+        List<Feed> feeds = new ArrayList<>();
+        for (LikeOperation like : likes) {
+            String error = null;
+            if (like.getOperation() != ADD && like.getOperation() != REMOVE) {
+                error = "Некорректная операция с лайком.";
+            } else if (!filmIds.contains(like.getFilmId())) {
+                error = "Фильма с таким id не существует.";
+            } else if (!userIds.contains(like.getUserId())) {
+                error = "Пользователя с таким id не существует.";
+            }
+            if (error == null) {
+                finalLikes.put(List.of(like.getFilmId(), like.getUserId()), like);
+                feeds.add(Feed.builder()
+                        .entityId(like.getFilmId())
+                        .userId(like.getUserId())
+                        .eventType(LIKE)
+                        .operation(like.getOperation())
+                        .build());
+            }
+            results.add(LikeOperationResult.builder()
+                    .filmId(like.getFilmId())
+                    .userId(like.getUserId())
+                    .operation(like.getOperation())
+                    .success(error == null)
+                    .error(error)
+                    .build());
+        }
+        filmStorage.updateLikes(finalLikes.values());
+        afterCommit(() -> updateLikeIndexes(finalLikes.values()));
+        if (!feeds.isEmpty()) {
+            feedService.addAll(feeds);
+        }
+        return results;
+    }
+
+    // Индексы лайков в памяти меняются только после фиксации: при откате они не должны расходиться с базой.
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+            return;
+        }
+        action.run();
+    }
+
+    private void updateLikeIndexes(Collection<LikeOperation> likes) {
+        Map<Integer, Integer> deltas = new HashMap<>();
+        likes.forEach(like -> {
+            if (like.getOperation() == ADD) {
+                if (recommendationService.addLike(like.getFilmId(), like.getUserId())) {
+                    deltas.merge(like.getFilmId(), 1, Integer::sum);
+                }
+            } else if (recommendationService.removeLike(like.getFilmId(), like.getUserId())) {
+                deltas.merge(like.getFilmId(), -1, Integer::sum);
+            }
+        });
+        searchService.changeRates(deltas);
+    }
+
     public List<Film> getTopRatedFilms(int count) {
         log.info("Возвращаем топ {} фильмов.", count);
         return filmStorage.getTopRatedFilms(count);
     }
 
+    @Scheduled(cron = "${filmorate.films.rate-repair-cron}")
+    public void repairRates() {
+        int repaired = filmStorage.repairRates();
+        log.info("Пересчитан рейтинг {} фильмов.", repaired);
+    }
+
     public List<Film> getFilmsByDirector(int directorId, String sortBy) {
         log.info("Возвращаем фильмы режиссера с id {}.", directorId);
         if (sortBy.equals("likes")) {
@@ -86,27 +248,36 @@ public class FilmService {
         }
     }
 
-    public List<Film> searchFilms(String query, String by) {
+    public List<Film> searchFilms(String query, String by, int limit, int offset) {
         log.info("Возвращаем результат поиска фильмов" +
                 " по запросу {} или по названию фильма или имени режиссёра {}.", query, by);
-
-        query = String.format("%%%s%%", query.toLowerCase());
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        if (offset < 0) {
+            throw new ValidationException("Смещение не может быть отрицательным.");
+        }
 
         String[] byList = by.split(",");
 
         if (byList.length != 0) {
             if (byList.length == 1) {
                 if (byList[0].equals("director")) {
-                    return filmStorage.searchFilmsByDirector(query);
+                    return filmStorage.getFilmsByIds(searchService.search(query, false, true, limit, offset));
                 } else if (byList[0].equals("title")) {
-                    return filmStorage.searchFilmsByTitle(query);
+                    return filmStorage.getFilmsByIds(searchService.search(query, true, false, limit, offset));
                 }
             } else if ((byList[0].equals("director") && byList[1].equals("title")) ||
                     (byList[0].equals("title") && byList[1].equals("director")) &&
                             byList.length == 2) {
-                return filmStorage.searchFilmsByDirectorOrFilm(query, query);
+                return filmStorage.getFilmsByIds(searchService.search(query, true, true, limit, offset));
             }
         }
         throw new ValidationException("Некорректные параметры запроса!");
     }
+
+    public List<String> suggestFilms(String prefix) {
+        log.info("Возвращаем подсказки поиска по префиксу {}.", prefix);
+        return searchService.suggest(prefix);
+    }
 }
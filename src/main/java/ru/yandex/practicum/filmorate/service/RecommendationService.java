@@ -0,0 +1,230 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.recommendation.RecommendationStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class RecommendationService {
+    private final FilmStorage filmStorage;
+    private final RecommendationStorage recommendationStorage;
+    private final int neighboursCount;
+    private final int precomputedCount;
+
+    // Битовые множества изменяются на месте под монитором самого множества, а добавление и удаление
+    // ключа идут через compute, который блокирует только этот ключ: лайки разных фильмов и
+    // пользователей не ждут друг друга. Чтение множества тоже идет под его монитором.
+    private final Map<Integer, BitSet> filmsByUser = new ConcurrentHashMap<>();
+    private final Map<Integer, BitSet> usersByFilm = new ConcurrentHashMap<>();
+
+    public RecommendationService(FilmStorage filmStorage,
+                                 RecommendationStorage recommendationStorage,
+                                 @Value("${filmorate.recommendations.neighbours}") int neighboursCount,
+                                 @Value("${filmorate.recommendations.precomputed-count}") int precomputedCount) {
+        this.filmStorage = filmStorage;
+        this.recommendationStorage = recommendationStorage;
+        this.neighboursCount = neighboursCount;
+        this.precomputedCount = precomputedCount;
+    }
+
+    @PostConstruct
+    public synchronized void reload() {
+        Map<Integer, BitSet> films = new HashMap<>();
+        Map<Integer, BitSet> users = new HashMap<>();
+        loadLikes(films, users);
+        filmsByUser.clear();
+        filmsByUser.putAll(films);
+        usersByFilm.clear();
+        usersByFilm.putAll(users);
+        log.info("Индекс рекомендаций загружен: {} пользователей, {} фильмов.", films.size(), users.size());
+    }
+
+    // Возвращает true, если лайка в индексе еще не было.
+    public boolean addLike(int filmId, int userId) {
+        boolean added = set(filmsByUser, userId, filmId);
+        set(usersByFilm, filmId, userId);
+        return added;
+    }
+
+    // Возвращает true, если лайк был в индексе.
+    public boolean removeLike(int filmId, int userId) {
+        boolean removed = clear(filmsByUser, userId, filmId);
+        clear(usersByFilm, filmId, userId);
+        return removed;
+    }
+
+    public List<Integer> removeUser(int userId) {
+        BitSet films = filmsByUser.remove(userId);
+        if (films == null) {
+            return new ArrayList<>();
+        }
+        List<Integer> filmIds = snapshot(films).stream().boxed().collect(Collectors.toList());
+        filmIds.forEach(filmId -> clear(usersByFilm, filmId, userId));
+        return filmIds;
+    }
+
+    public void removeFilm(int filmId) {
+        BitSet users = usersByFilm.remove(filmId);
+        if (users != null) {
+            snapshot(users).stream().forEach(userId -> clear(filmsByUser, userId, filmId));
+        }
+    }
+
+    @Scheduled(cron = "${filmorate.recommendations.recompute-cron}")
+    public void recompute() {
+        long start = System.currentTimeMillis();
+        Map<Integer, BitSet> films = new HashMap<>();
+        Map<Integer, BitSet> users = new HashMap<>();
+        loadLikes(films, users);
+        Map<Integer, List<Integer>> recommendations = films.entrySet().parallelStream()
+                .collect(Collectors.toConcurrentMap(Map.Entry::getKey, entry -> {
+                    List<Integer> filmIds = recommendFilmIds(entry.getKey(), entry.getValue(), films, users);
+                    return filmIds.size() > precomputedCount ? filmIds.subList(0, precomputedCount) : filmIds;
+                }));
+        recommendationStorage.replaceRecommendations(recommendations);
+        log.info("Пересчитаны рекомендации для {} пользователей за {} мс.",
+                recommendations.size(), System.currentTimeMillis() - start);
+    }
+
+    public List<Integer> recommendFilmIds(int userId) {
+        BitSet liked = filmsByUser.get(userId);
+        if (liked == null) {
+            return new ArrayList<>();
+        }
+        return recommendFilmIds(userId, snapshot(liked), filmsByUser, usersByFilm);
+    }
+
+    private List<Integer> recommendFilmIds(int userId, BitSet liked,
+                                           Map<Integer, BitSet> filmsByUser, Map<Integer, BitSet> usersByFilm) {
+        BitSet candidates = new BitSet();
+        liked.stream().forEach(filmId -> {
+            BitSet users = usersByFilm.get(filmId);
+            if (users != null) {
+                synchronized (users) {
+                    candidates.or(users);
+                }
+            }
+        });
+        candidates.clear(userId);
+
+        PriorityQueue<Neighbour> neighbours = new PriorityQueue<>(Comparator.comparingDouble(Neighbour::getSimilarity));
+        candidates.stream().forEach(otherId -> {
+            BitSet otherLiked = filmsByUser.get(otherId);
+            if (otherLiked == null) {
+                return;
+            }
+            BitSet common = (BitSet) liked.clone();
+            int otherCount;
+            synchronized (otherLiked) {
+                common.and(otherLiked);
+                otherCount = otherLiked.cardinality();
+            }
+            int intersection = common.cardinality();
+            double similarity = (double) intersection / (liked.cardinality() + otherCount - intersection);
+            if (similarity > 0) {
+                neighbours.add(new Neighbour(otherLiked, similarity));
+                if (neighbours.size() > neighboursCount) {
+                    neighbours.poll();
+                }
+            }
+        });
+
+        Map<Integer, Double> scores = new HashMap<>();
+        neighbours.forEach(neighbour -> snapshot(neighbour.getLiked()).stream()
+                .filter(filmId -> !liked.get(filmId))
+                .forEach(filmId -> scores.merge(filmId, neighbour.getSimilarity(), Double::sum)));
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    public List<Film> receiveFilmRecommendations(int userId) {
+        List<Integer> filmIds = recommendationStorage.getRecommendedFilmIds(userId);
+        if (filmIds.isEmpty()) {
+            return filmStorage.getFilmsByIds(recommendFilmIds(userId));
+        }
+        BitSet liked = snapshot(filmsByUser.getOrDefault(userId, new BitSet()));
+        List<Integer> notLiked = filmIds.stream()
+                .filter(filmId -> !liked.get(filmId))
+                .collect(Collectors.toList());
+        // Все заранее посчитанные фильмы пользователь уже лайкнул: считаем заново по текущим лайкам.
+        if (notLiked.isEmpty()) {
+            return filmStorage.getFilmsByIds(recommendFilmIds(userId));
+        }
+        return filmStorage.getFilmsByIds(notLiked);
+    }
+
+    private void loadLikes(Map<Integer, BitSet> filmsByUser, Map<Integer, BitSet> usersByFilm) {
+        filmStorage.forEachLike((filmId, userId) -> {
+            filmsByUser.computeIfAbsent(userId, id -> new BitSet()).set(filmId);
+            usersByFilm.computeIfAbsent(filmId, id -> new BitSet()).set(userId);
+        });
+    }
+
+    private static boolean set(Map<Integer, BitSet> index, int key, int bit) {
+        boolean[] changed = new boolean[1];
+        index.compute(key, (id, bitSet) -> {
+            BitSet result = bitSet == null ? new BitSet() : bitSet;
+            synchronized (result) {
+                changed[0] = !result.get(bit);
+                result.set(bit);
+            }
+            return result;
+        });
+        return changed[0];
+    }
+
+    private static boolean clear(Map<Integer, BitSet> index, int key, int bit) {
+        boolean[] changed = new boolean[1];
+        index.computeIfPresent(key, (id, bitSet) -> {
+            synchronized (bitSet) {
+                changed[0] = bitSet.get(bit);
+                bitSet.clear(bit);
+                return bitSet.isEmpty() ? null : bitSet;
+            }
+        });
+        return changed[0];
+    }
+
+    private static BitSet snapshot(BitSet bitSet) {
+        synchronized (bitSet) {
+            return (BitSet) bitSet.clone();
+        }
+    }
+
+    private static class Neighbour {
+        private final BitSet liked;
+        private final double similarity;
+
+        private Neighbour(BitSet liked, double similarity) {
+            this.liked = liked;
+            this.similarity = similarity;
+        }
+
+        private BitSet getLiked() {
+            return liked;
+        }
+
+        private double getSimilarity() {
+            return similarity;
+        }
+    }
+}
@@ -2,15 +2,18 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.review.ReviewStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
-import java.util.Collection;
-import java.util.Optional;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
 
 import static ru.yandex.practicum.filmorate.enums.EventType.REVIEW;
 import static ru.yandex.practicum.filmorate.enums.Operation.ADD;
@@ -26,10 +29,20 @@ public class ReviewService {
     private final FilmStorage filmStorage;
     private final FeedService feedService;
 
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private void checkUserAndFilmExist(Review review) {
+        if (!userStorage.existsUser(review.getUserId())) {
+            throw new NotFoundException("Пользователя с таким id не существует.");
+        }
+        if (!filmStorage.existsFilm(review.getFilmId())) {
+            throw new NotFoundException("Фильма с таким id не существует.");
+        }
+    }
+
     public Review createReview(Review review) {
         log.info("Добавление отзыва {}", review);
-        userStorage.getUser(review.getUserId());
-        filmStorage.getFilm(review.getFilmId());
+        checkUserAndFilmExist(review);
 
         Review result = reviewStorage.createReview(review).orElseThrow(() -> new NotFoundException("Отзыв не найден"));
         feedService.add(result.getReviewId(), result.getUserId(), REVIEW, ADD);
@@ -38,8 +51,7 @@ public class ReviewService {
 
     public Review updateReview(Review review) {
         log.info("обновление отзыва {}", review);
-        userStorage.getUser(review.getUserId());
-        filmStorage.getFilm(review.getFilmId());
+        checkUserAndFilmExist(review);
 
         feedService.add(review.getReviewId(),
                 getReviewById(review.getReviewId()).getUserId(), REVIEW, UPDATE);
@@ -58,28 +70,63 @@ public class ReviewService {
         return reviewStorage.getReviewById(id).orElseThrow(() -> new NotFoundException("Отзыв не найден"));
     }
 
-    public Collection<Review> getReviews(int filmId, int count) {
-        log.info("Возврат всех отзывов");
-        return reviewStorage.getReviews(filmId, count);
+    public List<Review> getReviews(int filmId, int count, String cursor) {
+        log.info("Возврат {} отзывов фильма с id {} после курсора {}", count, filmId, cursor);
+        if (count <= 0 || count > MAX_PAGE_SIZE) {
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        if (cursor == null) {
+            return reviewStorage.getReviews(filmId, count);
+        }
+        int[] position = parseCursor(cursor);
+        return reviewStorage.getReviewsAfter(filmId, position[0], position[1], count);
+    }
+
+    // Курсор непрозрачен для клиента: позиция последнего отзыва страницы "useful:reviewId" в base64.
+    public static String makeCursor(Review review) {
+        String position = review.getUseful() + ":" + review.getReviewId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int[] parseCursor(String cursor) {
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            if (position.length != 2) {
+                throw new ValidationException("Некорректный курсор страницы.");
+            }
+            return new int[]{Integer.parseInt(position[0]), Integer.parseInt(position[1])};
+        } catch (IllegalArgumentException exception) {
+            throw new ValidationException("Некорректный курсор страницы.");
+        }
     }
 
     public Boolean addLikeReview(int id, int userId) {
         log.info("Добавление лайка отзыву с id {}", id);
-        return reviewStorage.addLikeReview(id, userId);
+        reviewStorage.addLikeReview(id, userId);
+        return true;
     }
 
     public Boolean addDislikeReview(int id, int userId) {
         log.info("Добавление дизлайка отзыву с id {}", id);
-        return reviewStorage.addDislikeReview(id, userId);
+        reviewStorage.addDislikeReview(id, userId);
+        return true;
     }
 
     public Boolean removeLikeReview(int id, int userId) {
         log.info("Удаление лайка отзыву с id {}", id);
-        return reviewStorage.removeLikeReview(id, userId);
+        reviewStorage.removeLikeReview(id, userId);
+        return true;
     }
 
     public Boolean removeDislikeReview(int id, int userId) {
         log.info("Удаление дизлайка отзыву с id {}", id);
-        return reviewStorage.removeDislikeReview(id, userId);
+        reviewStorage.removeDislikeReview(id, userId);
+        return true;
+    }
+
+    @Scheduled(cron = "${filmorate.reviews.useful-repair-cron}")
+    public void repairUseful() {
+        int repaired = reviewStorage.repairUseful();
+        log.info("Пересчитана полезность {} отзывов.", repaired);
     }
-}
\ No newline at end of file
+}
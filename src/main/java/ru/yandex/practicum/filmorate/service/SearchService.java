@@ -0,0 +1,476 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class SearchService {
+    private static final double TITLE_WEIGHT = 1.0;
+    private static final double DIRECTOR_WEIGHT = 0.8;
+
+    private final FilmStorage filmStorage;
+    private final double fuzzyThreshold;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TrigramIndex titleIndex = new TrigramIndex();
+    private final TrigramIndex directorIndex = new TrigramIndex();
+    private final Map<Integer, Set<Integer>> directorsByFilm = new HashMap<>();
+    private final Map<Integer, Set<Integer>> filmsByDirector = new HashMap<>();
+    private final Map<Integer, String> titles = new HashMap<>();
+    private final Map<Integer, String> directorNames = new HashMap<>();
+    private final Map<String, Set<Integer>> filmsByTitle = new HashMap<>();
+    private final Map<String, Set<Integer>> directorsByName = new HashMap<>();
+    private final Map<Integer, Integer> rates = new HashMap<>();
+    private final SuggestionTrie suggestions;
+
+    public SearchService(FilmStorage filmStorage,
+                         @Value("${filmorate.search.fuzzy-threshold}") double fuzzyThreshold,
+                         @Value("${filmorate.search.suggestions}") int suggestionsCount) {
+        this.filmStorage = filmStorage;
+        this.fuzzyThreshold = fuzzyThreshold;
+        this.suggestions = new SuggestionTrie(suggestionsCount);
+    }
+
+    @PostConstruct
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            titleIndex.clear();
+            directorIndex.clear();
+            directorsByFilm.clear();
+            filmsByDirector.clear();
+            titles.clear();
+            directorNames.clear();
+            filmsByTitle.clear();
+            directorsByName.clear();
+            suggestions.clear();
+            rates.clear();
+            rates.putAll(filmStorage.getAllRates());
+            filmStorage.exportFilms(this::addFilm);
+            filmsByTitle.keySet().forEach(this::refreshSuggestion);
+            directorsByName.keySet().forEach(this::refreshSuggestion);
+            log.info("Поисковый индекс загружен: {} фильмов, {} режиссеров.",
+                    directorsByFilm.size(), filmsByDirector.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void indexFilm(Film film) {
+        lock.writeLock().lock();
+        try {
+            Set<String> keys = deleteFilm(film.getId());
+            keys.addAll(addFilm(film));
+            keys.forEach(this::refreshSuggestion);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(int filmId) {
+        lock.writeLock().lock();
+        try {
+            deleteFilm(filmId).forEach(this::refreshSuggestion);
+            rates.remove(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void indexDirector(Director director) {
+        lock.writeLock().lock();
+        try {
+            Set<String> keys = new HashSet<>();
+            keys.add(removeDirectorName(director.getId()));
+            keys.add(addDirectorName(director));
+            keys.forEach(this::refreshSuggestion);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeDirector(int directorId) {
+        lock.writeLock().lock();
+        try {
+            String key = removeDirectorName(directorId);
+            Set<Integer> filmIds = filmsByDirector.remove(directorId);
+            if (filmIds != null) {
+                filmIds.forEach(filmId -> directorsByFilm.get(filmId).remove(directorId));
+            }
+            refreshSuggestion(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Принимает изменения числа лайков по фильмам, чтобы не перечитывать рейтинг из базы.
+    public void changeRates(Map<Integer, Integer> deltas) {
+        lock.writeLock().lock();
+        try {
+            Set<String> keys = new HashSet<>();
+            deltas.forEach((filmId, delta) -> {
+                if (titles.containsKey(filmId) && delta != 0) {
+                    rates.merge(filmId, delta, Integer::sum);
+                    keys.addAll(suggestionKeys(filmId));
+                }
+            });
+            keys.forEach(this::refreshSuggestion);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<String> suggest(String prefix) {
+        lock.readLock().lock();
+        try {
+            return suggestions.complete(prefix);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Возвращает страницу id найденных фильмов. Сначала идет уровень совпадения: строка целиком,
+    // начало слова, вхождение в середину слова; внутри уровня фильмы упорядочены по числу лайков,
+    // затем по релевантности (название весит больше имени режиссера) и id. В куче хранится
+    // не больше offset + limit лучших кандидатов.
+    public List<Integer> search(String query, boolean byTitle, boolean byDirector, int limit, int offset) {
+        String text = normalize(query);
+        lock.readLock().lock();
+        try {
+            Map<Integer, Double> relevance = findRelevance(text, byTitle, byDirector);
+            Comparator<Integer> order = Comparator.<Integer>comparingDouble(filmId -> Math.ceil(relevance.get(filmId)))
+                    .thenComparingInt(filmId -> rates.getOrDefault(filmId, 0))
+                    .thenComparingDouble(relevance::get)
+                    .reversed()
+                    .thenComparing(Comparator.naturalOrder());
+            long size = (long) offset + limit;
+            PriorityQueue<Integer> top = new PriorityQueue<>(order.reversed());
+            relevance.keySet().forEach(filmId -> {
+                top.add(filmId);
+                if (top.size() > size) {
+                    top.poll();
+                }
+            });
+            List<Integer> filmIds = new ArrayList<>();
+            while (!top.isEmpty()) {
+                filmIds.add(top.poll());
+            }
+            Collections.reverse(filmIds);
+            return offset >= filmIds.size() ? new ArrayList<>() : filmIds.subList(offset, filmIds.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Нечеткие совпадения получают сходство меньше единицы и ищутся, только если точных нет.
+    private Map<Integer, Double> findRelevance(String text, boolean byTitle, boolean byDirector) {
+        Map<Integer, Double> relevance = new HashMap<>();
+        if (byTitle) {
+            titleIndex.findContaining(text).forEach(filmId ->
+                    relevance.merge(filmId, TITLE_WEIGHT * titleIndex.matchRank(filmId, text), Math::max));
+        }
+        if (byDirector) {
+            directorIndex.findContaining(text).forEach(directorId -> addDirectorFilms(relevance, directorId,
+                    DIRECTOR_WEIGHT * directorIndex.matchRank(directorId, text)));
+        }
+        if (relevance.isEmpty()) {
+            // Точных совпадений нет, пробуем найти слова с опечатками.
+            if (byTitle) {
+                titleIndex.findSimilar(text, fuzzyThreshold).forEach((filmId, similarity) ->
+                        relevance.merge(filmId, TITLE_WEIGHT * similarity, Math::max));
+            }
+            if (byDirector) {
+                directorIndex.findSimilar(text, fuzzyThreshold).forEach((directorId, similarity) ->
+                        addDirectorFilms(relevance, directorId, DIRECTOR_WEIGHT * similarity));
+            }
+        }
+        return relevance;
+    }
+
+    private void addDirectorFilms(Map<Integer, Double> relevance, int directorId, double score) {
+        filmsByDirector.getOrDefault(directorId, Set.of()).forEach(filmId ->
+                relevance.merge(filmId, score, Math::max));
+    }
+
+    private Set<String> addFilm(Film film) {
+        String title = film.getName() == null ? "" : film.getName();
+        titleIndex.add(film.getId(), normalize(title));
+        titles.put(film.getId(), title);
+        filmsByTitle.computeIfAbsent(normalize(title), key -> new HashSet<>()).add(film.getId());
+        rates.putIfAbsent(film.getId(), 0);
+        Set<Integer> directorIds = new HashSet<>();
+        film.getDirectors().forEach(director -> {
+            directorIds.add(director.getId());
+            filmsByDirector.computeIfAbsent(director.getId(), id -> new HashSet<>()).add(film.getId());
+            if (!directorIndex.contains(director.getId())) {
+                addDirectorName(director);
+            }
+        });
+        directorsByFilm.put(film.getId(), directorIds);
+        return suggestionKeys(film.getId());
+    }
+
+    private Set<String> deleteFilm(int filmId) {
+        Set<String> keys = suggestionKeys(filmId);
+        titleIndex.remove(filmId);
+        String title = titles.remove(filmId);
+        if (title != null) {
+            removeFromGroup(filmsByTitle, normalize(title), filmId);
+        }
+        Set<Integer> directorIds = directorsByFilm.remove(filmId);
+        if (directorIds != null) {
+            directorIds.forEach(directorId -> filmsByDirector.get(directorId).remove(filmId));
+        }
+        return keys;
+    }
+
+    private String addDirectorName(Director director) {
+        String name = director.getName() == null ? "" : director.getName();
+        directorIndex.add(director.getId(), normalize(name));
+        directorNames.put(director.getId(), name);
+        directorsByName.computeIfAbsent(normalize(name), key -> new HashSet<>()).add(director.getId());
+        return normalize(name);
+    }
+
+    private String removeDirectorName(int directorId) {
+        directorIndex.remove(directorId);
+        String name = directorNames.remove(directorId);
+        if (name == null) {
+            return null;
+        }
+        removeFromGroup(directorsByName, normalize(name), directorId);
+        return normalize(name);
+    }
+
+    private static void removeFromGroup(Map<String, Set<Integer>> groups, String key, int id) {
+        Set<Integer> ids = groups.get(key);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                groups.remove(key);
+            }
+        }
+    }
+
+    private Set<String> suggestionKeys(int filmId) {
+        Set<String> keys = new HashSet<>();
+        String title = titles.get(filmId);
+        if (title != null) {
+            keys.add(normalize(title));
+        }
+        directorsByFilm.getOrDefault(filmId, Set.of()).forEach(directorId -> {
+            String name = directorNames.get(directorId);
+            if (name != null) {
+                keys.add(normalize(name));
+            }
+        });
+        return keys;
+    }
+
+    // Вес подсказки - суммарное число лайков фильмов с таким названием и фильмов режиссеров с таким именем.
+    // Подсказки, по которым не найдется ни одного фильма, удаляются.
+    private void refreshSuggestion(String key) {
+        if (key == null) {
+            return;
+        }
+        long weight = 0;
+        boolean hasFilms = false;
+        String text = null;
+        for (int filmId : filmsByTitle.getOrDefault(key, Set.of())) {
+            weight += rates.getOrDefault(filmId, 0);
+            hasFilms = true;
+            text = titles.get(filmId);
+        }
+        for (int directorId : directorsByName.getOrDefault(key, Set.of())) {
+            for (int filmId : filmsByDirector.getOrDefault(directorId, Set.of())) {
+                weight += rates.getOrDefault(filmId, 0);
+                hasFilms = true;
+                text = directorNames.get(directorId);
+            }
+        }
+        if (hasFilms) {
+            suggestions.put(text, weight);
+        } else {
+            suggestions.remove(key);
+        }
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    // Индекс подстрок: каждая строка раскладывается на триграммы, кандидаты на вхождение запроса
+    // находятся пересечением списков по триграммам запроса и затем проверяются через contains.
+    // Для нечеткого поиска отдельно хранятся слова строк и триграммы слов с границами.
+    private static class TrigramIndex {
+        private static final int GRAM_LENGTH = 3;
+        private static final int MIN_FUZZY_WORD_LENGTH = 3;
+        private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+        private final Map<Integer, String> texts = new HashMap<>();
+        private final Map<String, Set<Integer>> postings = new HashMap<>();
+        private final Map<String, Set<Integer>> idsByWord = new HashMap<>();
+        private final Map<String, Set<String>> wordsByGram = new HashMap<>();
+
+        private boolean contains(int id) {
+            return texts.containsKey(id);
+        }
+
+        private double matchRank(int id, String query) {
+            String text = texts.get(id);
+            if (text.equals(query)) {
+                return 3;
+            }
+            if (text.startsWith(query) || text.contains(" " + query)) {
+                return 2;
+            }
+            return 1;
+        }
+
+        private void add(int id, String text) {
+            texts.put(id, text);
+            grams(text).forEach(gram -> postings.computeIfAbsent(gram, key -> new HashSet<>()).add(id));
+            words(text).forEach(word -> {
+                Set<Integer> ids = idsByWord.computeIfAbsent(word, key -> new HashSet<>());
+                if (ids.isEmpty()) {
+                    grams(pad(word)).forEach(gram -> wordsByGram.computeIfAbsent(gram, key -> new HashSet<>()).add(word));
+                }
+                ids.add(id);
+            });
+        }
+
+        private void remove(int id) {
+            String text = texts.remove(id);
+            if (text == null) {
+                return;
+            }
+            grams(text).forEach(gram -> {
+                Set<Integer> ids = postings.get(gram);
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(gram);
+                }
+            });
+            words(text).forEach(word -> {
+                Set<Integer> ids = idsByWord.get(word);
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    idsByWord.remove(word);
+                    grams(pad(word)).forEach(gram -> {
+                        Set<String> words = wordsByGram.get(gram);
+                        words.remove(word);
+                        if (words.isEmpty()) {
+                            wordsByGram.remove(gram);
+                        }
+                    });
+                }
+            });
+        }
+
+        private void clear() {
+            texts.clear();
+            postings.clear();
+            idsByWord.clear();
+            wordsByGram.clear();
+        }
+
+        private Set<Integer> findContaining(String query) {
+            if (query.isEmpty()) {
+                return new HashSet<>(texts.keySet());
+            }
+            if (query.length() < GRAM_LENGTH) {
+                Set<Integer> ids = new HashSet<>();
+                postings.forEach((gram, gramIds) -> {
+                    if (gram.contains(query)) {
+                        ids.addAll(gramIds);
+                    }
+                });
+                return ids;
+            }
+            List<Set<Integer>> lists = new ArrayList<>();
+            for (String gram : grams(query)) {
+                Set<Integer> ids = postings.get(gram);
+                if (ids == null) {
+                    return new HashSet<>();
+                }
+                lists.add(ids);
+            }
+            lists.sort(Comparator.comparingInt(Set::size));
+            return lists.get(0).stream()
+                    .filter(id -> lists.stream().allMatch(ids -> ids.contains(id)))
+                    .filter(id -> texts.get(id).contains(query))
+                    .collect(Collectors.toSet());
+        }
+
+        // Возвращает строки, у которых среднее по словам запроса лучшее триграммное сходство
+        // со словами строки не ниже порога, вместе с этим сходством. Кандидаты набираются
+        // подсчетом общих триграмм по спискам слов, без перебора всего словаря.
+        private Map<Integer, Double> findSimilar(String query, double threshold) {
+            Set<String> queryWords = words(query);
+            Map<Integer, Double> scores = new HashMap<>();
+            for (String queryWord : queryWords) {
+                Set<String> queryGrams = grams(pad(queryWord));
+                Map<String, Integer> common = new HashMap<>();
+                queryGrams.forEach(gram -> wordsByGram.getOrDefault(gram, Set.of())
+                        .forEach(word -> common.merge(word, 1, Integer::sum)));
+
+                Map<Integer, Double> wordScores = new HashMap<>();
+                common.forEach((word, count) -> {
+                    double similarity = (double) count / (queryGrams.size() + grams(pad(word)).size() - count);
+                    idsByWord.get(word).forEach(id -> wordScores.merge(id, similarity, Math::max));
+                });
+                wordScores.forEach((id, similarity) -> scores.merge(id, similarity, Double::sum));
+            }
+            scores.replaceAll((id, score) -> score / queryWords.size());
+            scores.values().removeIf(score -> score < threshold);
+            return scores;
+        }
+
+        private static Set<String> words(String text) {
+            return Arrays.stream(WORD_SEPARATOR.split(text))
+                    .filter(word -> word.length() >= MIN_FUZZY_WORD_LENGTH)
+                    .collect(Collectors.toSet());
+        }
+
+        private static String pad(String word) {
+            return "  " + word + " ";
+        }
+
+        // Строки короче триграммы индексируются целиком, чтобы их тоже можно было найти по подстроке.
+        private static Set<String> grams(String text) {
+            Set<String> grams = new HashSet<>();
+            if (text.length() < GRAM_LENGTH) {
+                if (!text.isEmpty()) {
+                    grams.add(text);
+                }
+                return grams;
+            }
+            for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+                grams.add(text.substring(i, i + GRAM_LENGTH));
+            }
+            return grams;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Префиксное дерево подсказок. Каждая подсказка доступна по началу строки и по началу любого ее слова.
+// В каждом узле хранится готовый список лучших по весу подсказок поддерева, поэтому ответ на запрос
+// не зависит от размера словаря: спуск по префиксу и чтение списка. При изменении подсказки списки
+// пересчитываются только вдоль ее путей, из списков дочерних узлов.
+class SuggestionTrie {
+    private static final Comparator<Suggestion> ORDER = Comparator.comparingLong(Suggestion::getWeight).reversed()
+            .thenComparing(Suggestion::getText);
+
+    private final int size;
+    private final Map<String, Suggestion> suggestions = new HashMap<>();
+    private Node root = new Node();
+
+    SuggestionTrie(int size) {
+        this.size = size;
+    }
+
+    void put(String text, long weight) {
+        String key = normalize(text);
+        Suggestion old = suggestions.get(key);
+        if (old != null && old.getWeight() == weight && old.getText().equals(text)) {
+            return;
+        }
+        Suggestion suggestion = new Suggestion(text, weight);
+        suggestions.put(key, suggestion);
+        paths(key).forEach(path -> update(path, old, suggestion));
+    }
+
+    void remove(String text) {
+        String key = normalize(text);
+        Suggestion old = suggestions.remove(key);
+        if (old != null) {
+            paths(key).forEach(path -> update(path, old, null));
+        }
+    }
+
+    void clear() {
+        suggestions.clear();
+        root = new Node();
+    }
+
+    List<String> complete(String prefix) {
+        Node node = root;
+        for (char c : normalize(prefix).toCharArray()) {
+            node = node.children.get(c);
+            if (node == null) {
+                return new ArrayList<>();
+            }
+        }
+        return node.top.stream()
+                .map(Suggestion::getText)
+                .collect(Collectors.toList());
+    }
+
+    private void update(String path, Suggestion old, Suggestion suggestion) {
+        List<Node> nodes = new ArrayList<>();
+        Node node = root;
+        nodes.add(node);
+        for (char c : path.toCharArray()) {
+            node = node.children.computeIfAbsent(c, key -> new Node());
+            nodes.add(node);
+        }
+        if (old != null) {
+            node.terminal.remove(old);
+        }
+        if (suggestion != null) {
+            node.terminal.add(suggestion);
+        }
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            Node current = nodes.get(i);
+            if (i > 0 && current.terminal.isEmpty() && current.children.isEmpty()) {
+                nodes.get(i - 1).children.remove(path.charAt(i - 1));
+                continue;
+            }
+            current.top = Stream.concat(current.terminal.stream(),
+                            current.children.values().stream().flatMap(child -> child.top.stream()))
+                    .distinct()
+                    .sorted(ORDER)
+                    .limit(size)
+                    .collect(Collectors.toUnmodifiableList());
+        }
+    }
+
+    private static Set<String> paths(String key) {
+        Set<String> paths = new HashSet<>();
+        for (int i = 0; i < key.length(); i++) {
+            if (i == 0 || !Character.isLetterOrDigit(key.charAt(i - 1)) && Character.isLetterOrDigit(key.charAt(i))) {
+                paths.add(key.substring(i));
+            }
+        }
+        return paths;
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private static class Node {
+        private final Map<Character, Node> children = new HashMap<>();
+        private final Set<Suggestion> terminal = new HashSet<>();
+        private List<Suggestion> top = Collections.emptyList();
+    }
+
+    private static class Suggestion {
+        private final String text;
+        private final long weight;
+
+        private Suggestion(String text, long weight) {
+            this.text = text;
+            this.weight = weight;
+        }
+
+        private String getText() {
+            return text;
+        }
+
+        private long getWeight() {
+            return weight;
+        }
+    }
+}
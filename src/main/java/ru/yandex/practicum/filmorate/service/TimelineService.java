@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Feed;
+import ru.yandex.practicum.filmorate.storage.feed.BufferedFeedStorage;
+import ru.yandex.practicum.filmorate.storage.timeline.TimelineStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class TimelineService {
+    private final TimelineStorage timelineStorage;
+    private final BufferedFeedStorage bufferedFeedStorage;
+    private final int celebrityThreshold;
+    private final int maxSize;
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    public TimelineService(TimelineStorage timelineStorage,
+                           BufferedFeedStorage bufferedFeedStorage,
+                           @Value("${filmorate.timeline.celebrity-threshold}") int celebrityThreshold,
+                           @Value("${filmorate.timeline.max-size}") int maxSize) {
+        this.timelineStorage = timelineStorage;
+        this.bufferedFeedStorage = bufferedFeedStorage;
+        this.celebrityThreshold = celebrityThreshold;
+        this.maxSize = maxSize;
+    }
+
+    // События раскладываются по лентам друзей сразу после записи, чтение ленты ничего не пишет.
+    @PostConstruct
+    public void init() {
+        bufferedFeedStorage.addWriteListener(this::fanOut);
+    }
+
+    private synchronized void fanOut(List<Feed> feeds) {
+        timelineStorage.fanOut(feeds.stream()
+                .map(Feed::getEventId)
+                .collect(Collectors.toList()), celebrityThreshold);
+        log.debug("{} событий ленты разложены по лентам друзей.", feeds.size());
+    }
+
+    @Scheduled(cron = "${filmorate.timeline.trim-cron}")
+    public void trim() {
+        int removed = timelineStorage.trim(maxSize);
+        log.info("Из лент друзей удалено {} старых событий.", removed);
+    }
+
+    public List<Feed> getTimeline(int userId, long beforeEventId, int limit) {
+        log.info("Вывод {} событий друзей пользователя с id {} до события с id {}", limit, userId, beforeEventId);
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        return timelineStorage.findByUserId(userId, beforeEventId, limit, celebrityThreshold);
+    }
+
+    // Новые события друга раскладываются при записи, а уже записанные — здесь, не больше размера ленты.
+    // Перед этим дописываются события из очереди, иначе разложенные до дружбы события потерялись бы.
+    public void addFriend(int userId, int friendId) {
+        bufferedFeedStorage.flush();
+        synchronized (this) {
+            timelineStorage.backfill(userId, friendId, maxSize, celebrityThreshold);
+        }
+    }
+
+    public synchronized void removeFriend(int userId, int friendId) {
+        timelineStorage.removeFriendEvents(userId, friendId);
+    }
+}
@@ -2,16 +2,21 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.yandex.practicum.filmorate.exception.IllegalAddFriendException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Feed;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
-import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.review.ReviewCache;
+import ru.yandex.practicum.filmorate.storage.review.ReviewStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static ru.yandex.practicum.filmorate.enums.EventType.FRIEND;
 import static ru.yandex.practicum.filmorate.enums.Operation.ADD;
@@ -22,8 +27,21 @@ import static ru.yandex.practicum.filmorate.enums.Operation.REMOVE;
 @Slf4j
 public class UserService {
     private final UserStorage userStorage;
-    private final FilmStorage filmStorage;
     private final FeedService feedService;
+    private final FeedStreamService feedStreamService;
+    private final RecommendationService recommendationService;
+    private final SearchService searchService;
+    private final TimelineService timelineService;
+    private final ReviewStorage reviewStorage;
+    private final ReviewCache reviewCache;
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private void checkUserExists(int userId) {
+        if (!userStorage.existsUser(userId)) {
+            throw new NotFoundException("Пользователя с таким id не существует.");
+        }
+    }
 
     private void validate(User user) {
         if (user.getLogin().contains(" ")) {
@@ -54,7 +72,14 @@ public class UserService {
 
     public Boolean deleteUser(int id) {
         log.info("Удаление пользователя с id {}", id);
-        return userStorage.deleteUser(id);
+        // Вместе с пользователем каскадно удаляются его отзывы и оценки отзывов, поэтому сбрасываются
+        // списки отзывов только тех фильмов, которых они касались.
+        List<Integer> reviewedFilmIds = reviewStorage.findFilmIdsByUser(id);
+        Boolean deleted = userStorage.deleteUser(id);
+        searchService.changeRates(recommendationService.removeUser(id).stream()
+                .collect(Collectors.toMap(filmId -> filmId, filmId -> -1)));
+        reviewedFilmIds.forEach(reviewCache::invalidate);
+        return deleted;
     }
 
     public List<User> getAllUsers() {
@@ -62,23 +87,41 @@ public class UserService {
         return userStorage.getAllUsers();
     }
 
+    public List<User> getUsers(int afterId, int limit) {
+        log.info("Вывод {} пользователей после пользователя с id {}.", limit, afterId);
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        return userStorage.getUsers(afterId, limit);
+    }
+
     public Boolean addFriend(int userId, int friendId) {
         log.info("Добавляем в друзья пользователей с id {} и {}.", userId, friendId);
         if (userId == friendId) {
             throw new IllegalAddFriendException("Пользователь не может добавить в друзья себя самого.");
         }
-        getUserById(userId);
-        getUserById(friendId);
+        checkUserExists(userId);
+        checkUserExists(friendId);
         feedService.add(friendId, userId, FRIEND, ADD);
-        return userStorage.addFriend(userId, friendId);
+        Boolean added = userStorage.addFriend(userId, friendId);
+        timelineService.addFriend(userId, friendId);
+        return added;
     }
 
     public Boolean removeFriend(int userId, int friendId) {
         log.info("Удаляем из друзей пользователей с id {} и {}.", userId, friendId);
-        getUserById(userId);
-        getUserById(friendId);
+        checkUserExists(userId);
+        checkUserExists(friendId);
         feedService.add(friendId, userId, FRIEND, REMOVE);
-        return userStorage.removeFriend(userId, friendId);
+        Boolean removed = userStorage.removeFriend(userId, friendId);
+        timelineService.removeFriend(userId, friendId);
+        return removed;
+    }
+
+    @Scheduled(cron = "${filmorate.users.followers-repair-cron}")
+    public void repairFollowersCount() {
+        int repaired = userStorage.repairFollowersCount();
+        log.info("Пересчитано число подписчиков {} пользователей.", repaired);
     }
 
     public List<User> getUserFriends(int userId) {
@@ -93,11 +136,26 @@ public class UserService {
 
     public List<Film> receiveFilmRecommendations(int userId) {
         log.info("Выводим рекомендации фильмов для пользователя с id {} ", userId);
-        return filmStorage.receiveFilmRecommendations(userId);
+        return recommendationService.receiveFilmRecommendations(userId);
+    }
+
+    public List<Feed> getTimeline(int userId, long beforeEventId, int limit) {
+        checkUserExists(userId);
+        return timelineService.getTimeline(userId, beforeEventId, limit);
     }
 
     public List<Feed> getFeedByUserId(Integer id) {
-        getUserById(id);
+        checkUserExists(id);
         return feedService.getByUserId(id);
     }
+
+    public List<Feed> getFeedByUserId(Integer id, long sinceEventId, int limit) {
+        checkUserExists(id);
+        return feedService.getByUserId(id, sinceEventId, limit);
+    }
+
+    public SseEmitter streamFeed(int id, Long lastEventId) {
+        checkUserExists(id);
+        return feedStreamService.subscribe(id, lastEventId);
+    }
 }
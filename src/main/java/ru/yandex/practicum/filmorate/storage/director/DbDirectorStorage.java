@@ -67,6 +67,16 @@ public class DbDirectorStorage implements DirectorStorage {
         }
     }
 
+    @Override
+    public boolean existsDirector(int id) {
+        final String sqlQuery = "SELECT EXISTS (" +
+                "SELECT 1 " +
+                "FROM DIRECTORS " +
+                "WHERE DIRECTOR_ID = ?" +
+                ")";
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sqlQuery, Boolean.class, id));
+    }
+
     @Override
     public List<Director> getAllDirectors() {
         final String sqlQuery = "SELECT * " +
@@ -13,5 +13,7 @@ public interface DirectorStorage {
 
     Director getDirector(int directorId);
 
+    boolean existsDirector(int directorId);
+
     List<Director> getAllDirectors();
 }
@@ -0,0 +1,331 @@
+package ru.yandex.practicum.filmorate.storage.feed;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.enums.EventType;
+import ru.yandex.practicum.filmorate.enums.Operation;
+import ru.yandex.practicum.filmorate.model.Feed;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+@Component
+@Primary
+@Slf4j
+public class BufferedFeedStorage implements FeedStorage {
+    // Маркер в очереди: писатель сразу записывает накопленную пачку, не дожидаясь таймаута.
+    private static final Feed FLUSH = Feed.builder().build();
+
+    private final DbFeedStorage dbFeedStorage;
+    private final boolean async;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long flushTimeoutNanos;
+    private final BlockingQueue<Feed> queue;
+    private final Object progress = new Object();
+    private final List<Consumer<List<Feed>>> writeListeners = new CopyOnWriteArrayList<>();
+
+    private long enqueued;
+    private long written;
+    private volatile boolean running;
+    private Thread writer;
+
+    public BufferedFeedStorage(DbFeedStorage dbFeedStorage,
+                               @Value("${filmorate.feed.write-mode}") String writeMode,
+                               @Value("${filmorate.feed.buffer-size}") int bufferSize,
+                               @Value("${filmorate.feed.batch-size}") int batchSize,
+                               @Value("${filmorate.feed.flush-interval-ms}") long flushIntervalMs,
+                               @Value("${filmorate.feed.flush-timeout-ms}") long flushTimeoutMs) {
+        this.dbFeedStorage = dbFeedStorage;
+        this.async = "async".equals(writeMode);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.flushTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(flushTimeoutMs);
+        this.queue = new ArrayBlockingQueue<>(bufferSize);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!async) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "feed-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Остановка не ждет писателя дольше таймаута: если он завис на базе при полной очереди, его
+    // прерывают. Если писатель так и не завершился, база недоступна, и события в очереди теряются.
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!async) {
+            return;
+        }
+        running = false;
+        if (!queue.offer(FLUSH, flushTimeoutNanos, TimeUnit.NANOSECONDS)) {
+            writer.interrupt();
+        }
+        TimeUnit.NANOSECONDS.timedJoin(writer, flushTimeoutNanos);
+        if (writer.isAlive()) {
+            log.warn("Писатель ленты не завершился за {} мс, не записано событий: {}.",
+                    TimeUnit.NANOSECONDS.toMillis(flushTimeoutNanos), queue.size());
+            return;
+        }
+        // События, поставленные в очередь, пока писатель завершался.
+        drain();
+        log.info("Запись ленты остановлена, записано событий: {}.", written);
+    }
+
+    @Override
+    public List<Feed> findByUserId(int id) {
+        flush();
+        return dbFeedStorage.findByUserId(id);
+    }
+
+    @Override
+    public List<Feed> findByUserId(int id, long sinceEventId, int limit) {
+        flush();
+        return dbFeedStorage.findByUserId(id, sinceEventId, limit);
+    }
+
+    @Override
+    public List<Feed> findAfter(long eventId, int limit) {
+        flush();
+        return dbFeedStorage.findAfter(eventId, limit);
+    }
+
+    @Override
+    public void addFeed(int entityId, int userId, long timestamp, EventType eventType, Operation operation) {
+        addFeeds(List.of(Feed.builder()
+                .entityId(entityId)
+                .userId(userId)
+                .timestamp(timestamp)
+                .eventType(eventType)
+                .operation(operation)
+                .build()));
+    }
+
+    @Override
+    public void addFeeds(List<Feed> feeds) {
+        if (!async) {
+            dbFeedStorage.addFeeds(feeds);
+            notifyWritten(feeds);
+            return;
+        }
+        enqueueAfterCommit(feeds);
+    }
+
+    @Override
+    public Optional<Long> findLastAddedId(int userId, EventType eventType, int entityId, long beforeEventId) {
+        return dbFeedStorage.findLastAddedId(userId, eventType, entityId, beforeEventId);
+    }
+
+    @Override
+    public List<Feed> findBefore(long afterEventId, long timestamp, int limit) {
+        flush();
+        return dbFeedStorage.findBefore(afterEventId, timestamp, limit);
+    }
+
+    @Override
+    public int deleteFeeds(Collection<Long> eventIds) {
+        return dbFeedStorage.deleteFeeds(eventIds);
+    }
+
+    // Слушатель получает записанные события с проставленными id. В асинхронном режиме он выполняется
+    // в потоке писателя, поэтому не должен надолго блокироваться и вызывать flush().
+    public void addWriteListener(Consumer<List<Feed>> listener) {
+        writeListeners.add(listener);
+    }
+
+    // Дожидается записи всех событий, поставленных в очередь до вызова, но не дольше таймаута:
+    // если писатель завис на базе, читатели получают ленту без последних событий.
+    public void flush() {
+        if (!async || !running) {
+            return;
+        }
+        try {
+            long target;
+            synchronized (progress) {
+                target = enqueued;
+                if (written >= target) {
+                    return;
+                }
+            }
+            long deadline = System.nanoTime() + flushTimeoutNanos;
+            if (queue.offer(FLUSH, flushTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                synchronized (progress) {
+                    long remaining = deadline - System.nanoTime();
+                    while (written < target && remaining > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(progress, remaining);
+                        remaining = deadline - System.nanoTime();
+                    }
+                    if (written >= target) {
+                        return;
+                    }
+                }
+            }
+            log.warn("Не дождались записи событий ленты за {} мс.", TimeUnit.NANOSECONDS.toMillis(flushTimeoutNanos));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Писатель видит только зафиксированные данные, поэтому события транзакции ставятся в очередь после фиксации.
+    private void enqueueAfterCommit(List<Feed> feeds) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    feeds.forEach(BufferedFeedStorage.this::enqueue);
+                }
+            });
+            return;
+        }
+        feeds.forEach(this::enqueue);
+    }
+
+    // Очередь ограничена: при переполнении вызывающий поток ждет, пока писатель освободит место.
+    // Если писатель уже остановлен, событие записывается сразу.
+    private void enqueue(Feed feed) {
+        if (!running || !writer.isAlive()) {
+            store(List.of(feed));
+            return;
+        }
+        try {
+            synchronized (progress) {
+                enqueued++;
+            }
+            queue.put(feed);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            synchronized (progress) {
+                enqueued--;
+            }
+            store(List.of(feed));
+            return;
+        }
+        if (!running) {
+            // Остановка началась во время вставки: писатель мог уже выйти, не увидев событие.
+            drain();
+        }
+    }
+
+    private void drain() {
+        List<Feed> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        rest.removeIf(feed -> feed == FLUSH);
+        write(rest);
+    }
+
+    private void writeLoop() {
+        List<Feed> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Feed feed = queue.take();
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (feed != FLUSH) {
+                    batch.add(feed);
+                    if (batch.size() >= batchSize) {
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    feed = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (feed == null) {
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+                write(batch);
+                drain();
+                return;
+            }
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    // Записывает события, взятые из очереди, и отмечает прогресс для flush().
+    private void write(List<Feed> batch) {
+        store(batch);
+        synchronized (progress) {
+            written += batch.size();
+            progress.notifyAll();
+        }
+    }
+
+    private void store(List<Feed> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Feed> stored = batch;
+        try {
+            dbFeedStorage.addFeeds(batch);
+        } catch (RuntimeException e) {
+            // Например, пользователь удален до записи его события: пишем по одному, пропуская ошибки.
+            log.warn("Не удалось записать пачку из {} событий ленты, запись по одному.", batch.size(), e);
+            stored = new ArrayList<>();
+            for (Feed feed : batch) {
+                if (writeOne(feed)) {
+                    stored.add(feed);
+                }
+            }
+        }
+        if (!stored.isEmpty()) {
+            notifyWritten(List.copyOf(stored));
+        }
+    }
+
+    // Внутри транзакции события становятся видны другим соединениям только после фиксации.
+    private void notifyWritten(List<Feed> feeds) {
+        if (writeListeners.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    runListeners(feeds);
+                }
+            });
+            return;
+        }
+        runListeners(feeds);
+    }
+
+    // Ошибка слушателя не должна останавливать писателя или откатывать уже записанные события.
+    private void runListeners(List<Feed> feeds) {
+        for (Consumer<List<Feed>> listener : writeListeners) {
+            try {
+                listener.accept(feeds);
+            } catch (RuntimeException e) {
+                log.warn("Слушатель записи ленты завершился с ошибкой.", e);
+            }
+        }
+    }
+
+    private boolean writeOne(Feed feed) {
+        try {
+            dbFeedStorage.addFeeds(List.of(feed));
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Событие ленты пользователя с id {} не записано.", feed.getUserId(), e);
+            return false;
+        }
+    }
+}
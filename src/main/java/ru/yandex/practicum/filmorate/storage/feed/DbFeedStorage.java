@@ -9,7 +9,11 @@ import ru.yandex.practicum.filmorate.model.Feed;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 @Component
 @RequiredArgsConstructor
@@ -27,14 +31,106 @@ public class DbFeedStorage implements FeedStorage {
         return jdbcTemplate.query(sql, this::makeFeed, id);
     }
 
+    @Override
+    public List<Feed> findByUserId(int id, long sinceEventId, int limit) {
+
+        final String sql = "SELECT * " +
+                "FROM FEED " +
+                "WHERE USER_ID = ? " +
+                "AND EVENT_ID > ? " +
+                "ORDER BY EVENT_ID " +
+                "LIMIT ?";
+
+        return jdbcTemplate.query(sql, this::makeFeed, id, sinceEventId, limit);
+    }
+
+    @Override
+    public List<Feed> findAfter(long eventId, int limit) {
+
+        final String sql = "SELECT * " +
+                "FROM FEED " +
+                "WHERE EVENT_ID > ? " +
+                "ORDER BY EVENT_ID " +
+                "LIMIT ?";
+
+        return jdbcTemplate.query(sql, this::makeFeed, eventId, limit);
+    }
+
     @Override
     public void addFeed(int entityId, int userId, long timestamp, EventType eventType, Operation operation) {
+        addFeeds(List.of(Feed.builder()
+                .entityId(entityId)
+                .userId(userId)
+                .timestamp(timestamp)
+                .eventType(eventType)
+                .operation(operation)
+                .build()));
+    }
+
+    // Проставляет записанным событиям EVENT_ID, чтобы их можно было разослать без повторного чтения.
+    // Строки одного INSERT получают id по порядку VALUES.
+    @Override
+    public void addFeeds(List<Feed> feeds) {
+        if (feeds.isEmpty()) {
+            return;
+        }
+
+        final String sql = "SELECT EVENT_ID " +
+                "FROM FINAL TABLE (" +
+                "INSERT INTO FEED(ENTITY_ID, USER_ID, timestamp, EVENT_TYPE, OPERATION) " +
+                "VALUES " + String.join(", ", Collections.nCopies(feeds.size(), "(?, ?, ?, ?, ?)")) +
+                ") " +
+                "ORDER BY EVENT_ID";
+
+        List<Object> args = new ArrayList<>();
+        feeds.forEach(feed -> Collections.addAll(args, feed.getEntityId(), feed.getUserId(), feed.getTimestamp(),
+                feed.getEventType().toString(), feed.getOperation().toString()));
+        List<Long> eventIds = jdbcTemplate.queryForList(sql, Long.class, args.toArray());
+        for (int i = 0; i < feeds.size(); i++) {
+            feeds.get(i).setEventId(eventIds.get(i));
+        }
+    }
+
+    @Override
+    public Optional<Long> findLastAddedId(int userId, EventType eventType, int entityId, long beforeEventId) {
+
+        final String sql = "SELECT EVENT_ID " +
+                "FROM FEED " +
+                "WHERE USER_ID = ? " +
+                "AND EVENT_ID < ? " +
+                "AND EVENT_TYPE = ? " +
+                "AND ENTITY_ID = ? " +
+                "AND OPERATION = ? " +
+                "ORDER BY EVENT_ID DESC " +
+                "LIMIT 1";
+
+        return jdbcTemplate.queryForList(sql, Long.class, userId, beforeEventId, eventType.toString(), entityId,
+                Operation.ADD.toString()).stream().findFirst();
+    }
+
+    @Override
+    public List<Feed> findBefore(long afterEventId, long timestamp, int limit) {
+
+        final String sql = "SELECT * " +
+                "FROM FEED " +
+                "WHERE EVENT_ID > ? " +
+                "AND timestamp < ? " +
+                "ORDER BY EVENT_ID " +
+                "LIMIT ?";
+
+        return jdbcTemplate.query(sql, this::makeFeed, afterEventId, timestamp, limit);
+    }
+
+    @Override
+    public int deleteFeeds(Collection<Long> eventIds) {
+        if (eventIds.isEmpty()) {
+            return 0;
+        }
 
-        final String sql = "INSERT INTO FEED(ENTITY_ID, USER_ID, timestamp, EVENT_TYPE, OPERATION) " +
-                "VALUES (?, ?, ?, ?, ?)";
+        final String sql = "DELETE FROM FEED " +
+                "WHERE EVENT_ID IN (" + String.join(", ", Collections.nCopies(eventIds.size(), "?")) + ")";
 
-        jdbcTemplate.update(sql, entityId, userId, timestamp,
-                eventType.toString(), operation.toString());
+        return jdbcTemplate.update(sql, eventIds.toArray());
     }
 
     private Feed makeFeed(ResultSet resultSet, int rowNum) throws SQLException {
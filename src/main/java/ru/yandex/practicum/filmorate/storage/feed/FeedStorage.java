@@ -2,9 +2,17 @@ package ru.yandex.practicum.filmorate.storage.feed;
 import ru.yandex.practicum.filmorate.enums.EventType;
 import ru.yandex.practicum.filmorate.enums.Operation;
 import ru.yandex.practicum.filmorate.model.Feed;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface FeedStorage {
     List<Feed> findByUserId(int id);
+    List<Feed> findByUserId(int id, long sinceEventId, int limit);
+    List<Feed> findAfter(long eventId, int limit);
     void addFeed(int entityId, int userId, long timestamp, EventType eventType, Operation operation);
+    void addFeeds(List<Feed> feeds);
+    Optional<Long> findLastAddedId(int userId, EventType eventType, int entityId, long beforeEventId);
+    List<Feed> findBefore(long afterEventId, long timestamp, int limit);
+    int deleteFeeds(Collection<Long> eventIds);
 }
@@ -0,0 +1,246 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+@Component
+@Primary
+@Slf4j
+public class CachedFilmStorage implements FilmStorage, FilmCache {
+    private final DbFilmStorage dbFilmStorage;
+    private final long ttlNanos;
+    private final Map<Integer, CachedFilm> films;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    // Растет при каждой инвалидации: фильм, прочитанный из базы до нее, в кэш не кладется.
+    private long generation;
+
+    public CachedFilmStorage(DbFilmStorage dbFilmStorage,
+                             @Value("${filmorate.films.cache.max-size}") int maxSize,
+                             @Value("${filmorate.films.cache.ttl-seconds}") long ttlSeconds) {
+        this.dbFilmStorage = dbFilmStorage;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.films = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, CachedFilm> eldest) {
+                if (size() > maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public void invalidate(int filmId) {
+        synchronized (films) {
+            generation++;
+            films.remove(filmId);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        synchronized (films) {
+            generation++;
+            films.clear();
+        }
+        log.info("Кэш фильмов очищен, попаданий {}, промахов {}, вытеснений {}.",
+                hits.get(), misses.get(), evictions.get());
+    }
+
+    private long generation() {
+        synchronized (films) {
+            return generation;
+        }
+    }
+
+    private void put(Film film, long readGeneration) {
+        synchronized (films) {
+            if (generation == readGeneration) {
+                films.put(film.getId(), new CachedFilm(copy(film), System.nanoTime() + ttlNanos));
+            }
+        }
+    }
+
+    // Кэш отдает и хранит копии, чтобы изменения объекта вызывающим кодом не попадали в кэш.
+    private static Film copy(Film film) {
+        Film copy = Film.builder()
+                .id(film.getId())
+                .name(film.getName())
+                .description(film.getDescription())
+                .releaseDate(film.getReleaseDate())
+                .duration(film.getDuration())
+                .mpa(film.getMpa())
+                .build();
+        copy.getGenres().addAll(film.getGenres());
+        copy.getDirectors().addAll(film.getDirectors());
+        return copy;
+    }
+
+    @Override
+    public Film createFilm(Film film) {
+        long readGeneration = generation();
+        Film created = dbFilmStorage.createFilm(film);
+        put(created, readGeneration);
+        return created;
+    }
+
+    // После записи фильм только удаляется из кэша: при параллельных обновлениях положенная
+    // в кэш версия могла бы оказаться не последней.
+    @Override
+    public Film updateFilm(Film film) {
+        Film updated = dbFilmStorage.updateFilm(film);
+        invalidate(film.getId());
+        return updated;
+    }
+
+    @Override
+    public Film getFilm(int filmId) {
+        synchronized (films) {
+            CachedFilm cachedFilm = films.get(filmId);
+            if (cachedFilm != null) {
+                if (cachedFilm.expiresAt - System.nanoTime() > 0) {
+                    hits.incrementAndGet();
+                    return copy(cachedFilm.film);
+                }
+                films.remove(filmId);
+                evictions.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        long readGeneration = generation();
+        Film film = dbFilmStorage.getFilm(filmId);
+        put(film, readGeneration);
+        return film;
+    }
+
+    @Override
+    public boolean existsFilm(int filmId) {
+        synchronized (films) {
+            CachedFilm cachedFilm = films.get(filmId);
+            if (cachedFilm != null && cachedFilm.expiresAt - System.nanoTime() > 0) {
+                hits.incrementAndGet();
+                return true;
+            }
+        }
+        misses.incrementAndGet();
+        return dbFilmStorage.existsFilm(filmId);
+    }
+
+    @Override
+    public Set<Integer> findExistingFilmIds(Collection<Integer> filmIds) {
+        return dbFilmStorage.findExistingFilmIds(filmIds);
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> filmIds) {
+        return dbFilmStorage.getFilmsByIds(filmIds);
+    }
+
+    @Override
+    public Map<Integer, Integer> getAllRates() {
+        return dbFilmStorage.getAllRates();
+    }
+
+    @Override
+    public Boolean deleteFilm(int id) {
+        Boolean deleted = dbFilmStorage.deleteFilm(id);
+        invalidate(id);
+        return deleted;
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        return dbFilmStorage.getAllFilms();
+    }
+
+    @Override
+    public List<Film> getFilms(int afterId, int limit) {
+        return dbFilmStorage.getFilms(afterId, limit);
+    }
+
+    @Override
+    public void exportFilms(Consumer<Film> consumer) {
+        dbFilmStorage.exportFilms(consumer);
+    }
+
+    @Override
+    public Boolean addLike(int filmId, int userId) {
+        return dbFilmStorage.addLike(filmId, userId);
+    }
+
+    @Override
+    public Boolean removeLike(int filmId, int userId) {
+        return dbFilmStorage.removeLike(filmId, userId);
+    }
+
+    @Override
+    public void updateLikes(Collection<LikeOperation> likes) {
+        dbFilmStorage.updateLikes(likes);
+    }
+
+    @Override
+    public void forEachLike(BiConsumer<Integer, Integer> action) {
+        dbFilmStorage.forEachLike(action);
+    }
+
+    @Override
+    public int repairRates() {
+        return dbFilmStorage.repairRates();
+    }
+
+    @Override
+    public List<Film> getTopRatedFilms(int count) {
+        return dbFilmStorage.getTopRatedFilms(count);
+    }
+
+    @Override
+    public List<Film> getFilmsByDirectorSortLikes(int directorId) {
+        return dbFilmStorage.getFilmsByDirectorSortLikes(directorId);
+    }
+
+    @Override
+    public List<Film> getFilmsByDirectorSortYear(int directorId) {
+        return dbFilmStorage.getFilmsByDirectorSortYear(directorId);
+    }
+
+    private static class CachedFilm {
+        private final Film film;
+        private final long expiresAt;
+
+        private CachedFilm(Film film, long expiresAt) {
+            this.film = film;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -1,36 +1,54 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.enums.Operation;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
 import ru.yandex.practicum.filmorate.storage.director.DirectorStorage;
-import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 @Component
+@Slf4j
 @RequiredArgsConstructor
 public class DbFilmStorage implements FilmStorage {
+    private static final String FILMS_QUERY = "SELECT f.FILM_ID, f.NAME, f.DESCRIPTION, f.RELEASE_DATE, f.DURATION, " +
+            "f.MPA_ID " +
+            "FROM FILMS AS f ";
+    private static final int EXPORT_FETCH_SIZE = 500;
+
     private final JdbcTemplate jdbcTemplate;
-    private final UserStorage dbUserStorage;
     private final DirectorStorage dbDirectorStorage;
+    private final GenreStorage genreStorage;
+    private final MpaStorage mpaStorage;
 
     @Override
     public Film createFilm(Film film) {
@@ -81,24 +99,36 @@ public class DbFilmStorage implements FilmStorage {
 
     @Override
     public Film getFilm(int filmId) {
-        final String sqlQuery = "SELECT f.FILM_ID, f.NAME, f.DESCRIPTION, f.RELEASE_DATE, f.DURATION, " +
-                "m.MPA_ID, m.NAME, m.DESCRIPTION, " +
-                "g.GENRE_ID, g.NAME, " +
-                "d.DIRECTOR_ID, d.NAME " +
-                "FROM FILMS AS f " +
-                "JOIN MPA AS m ON f.MPA_ID = m.MPA_ID " +
-                "LEFT JOIN FILMS_GENRES AS fg ON f.FILM_ID = fg.FILM_ID " +
-                "LEFT JOIN GENRES AS g ON fg.GENRE_ID = g.GENRE_ID " +
-                "LEFT JOIN FILMS_DIRECTORS AS fd ON f.FILM_ID = fd.FILM_ID " +
-                "LEFT JOIN DIRECTORS AS d ON fd.DIRECTOR_ID = d.DIRECTOR_ID " +
-                "WHERE f.film_id = ?";
-        List<Film> films = jdbcTemplate.query(sqlQuery, this::makeFilms, filmId);
+        final String sqlQuery = FILMS_QUERY +
+                "WHERE f.FILM_ID = ?";
+        List<Film> films = loadFilms(sqlQuery, filmId);
         if (films.size() == 0) {
             throw new NotFoundException("Фильма с таким id не существует.");
         }
         return films.get(0);
     }
 
+    @Override
+    public boolean existsFilm(int filmId) {
+        final String sqlQuery = "SELECT EXISTS (" +
+                "SELECT 1 " +
+                "FROM FILMS " +
+                "WHERE FILM_ID = ?" +
+                ")";
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sqlQuery, Boolean.class, filmId));
+    }
+
+    @Override
+    public Set<Integer> findExistingFilmIds(Collection<Integer> filmIds) {
+        if (filmIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        final String sqlQuery = "SELECT FILM_ID " +
+                "FROM FILMS " +
+                "WHERE FILM_ID IN (" + String.join(", ", Collections.nCopies(filmIds.size(), "?")) + ")";
+        return new HashSet<>(jdbcTemplate.queryForList(sqlQuery, Integer.class, filmIds.toArray()));
+    }
+
     @Override
     public Boolean deleteFilm(int id) {
         final String sqlQuery = "DELETE FROM FILMS " +
@@ -109,17 +139,43 @@ public class DbFilmStorage implements FilmStorage {
 
     @Override
     public List<Film> getAllFilms() {
-        final String sqlQuery = "SELECT f.FILM_ID, f.NAME, f.DESCRIPTION, f.RELEASE_DATE, f.DURATION, " +
-                "m.MPA_ID, m.NAME, m.DESCRIPTION, " +
-                "g.GENRE_ID, g.NAME, " +
-                "d.DIRECTOR_ID, d.NAME " +
-                "FROM FILMS AS f " +
-                "JOIN MPA AS m ON f.MPA_ID = m.MPA_ID " +
-                "LEFT JOIN FILMS_GENRES AS fg ON f.FILM_ID = fg.FILM_ID " +
-                "LEFT JOIN GENRES AS g ON fg.GENRE_ID = g.GENRE_ID " +
-                "LEFT JOIN FILMS_DIRECTORS AS fd ON f.FILM_ID = fd.FILM_ID " +
-                "LEFT JOIN DIRECTORS AS d ON fd.DIRECTOR_ID = d.DIRECTOR_ID";
-        return jdbcTemplate.query(sqlQuery, this::makeFilms);
+        final String sqlQuery = FILMS_QUERY +
+                "ORDER BY f.FILM_ID";
+        return loadFilms(sqlQuery);
+    }
+
+    @Override
+    public List<Film> getFilms(int afterId, int limit) {
+        final String sqlQuery = FILMS_QUERY +
+                "WHERE f.FILM_ID > ? " +
+                "ORDER BY f.FILM_ID " +
+                "LIMIT ?";
+        return loadFilms(sqlQuery, afterId, limit);
+    }
+
+    @Override
+    public void exportFilms(Consumer<Film> consumer) {
+        final String sqlQuery = FILMS_QUERY +
+                "ORDER BY f.FILM_ID";
+        List<Film> films = new ArrayList<>(EXPORT_FETCH_SIZE);
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement preparedStatement = connection.prepareStatement(sqlQuery,
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    preparedStatement.setFetchSize(EXPORT_FETCH_SIZE);
+                    return preparedStatement;
+                },
+                (RowCallbackHandler) resultSet -> {
+                    films.add(makeFilm(resultSet, resultSet.getRow()));
+                    if (films.size() == EXPORT_FETCH_SIZE) {
+                        addGenresAndDirectors(films);
+                        films.forEach(consumer);
+                        films.clear();
+                    }
+                }
+        );
+        addGenresAndDirectors(films);
+        films.forEach(consumer);
     }
 
     private void addFilmGenres(Film film) {
@@ -171,227 +227,220 @@ public class DbFilmStorage implements FilmStorage {
     }
 
     @Override
+    @Transactional
     public Boolean addLike(int filmId, int userId) {
-        getFilm(filmId);
-        dbUserStorage.getUser(userId);
-        final String sqlQuery = "MERGE INTO LIKES (FILM_ID, USER_ID) " +
-                "VALUES (?, ?)";
-        jdbcTemplate.update(sqlQuery, filmId, userId);
+        final String sqlQuery = "INSERT INTO LIKES (FILM_ID, USER_ID) " +
+                "SELECT ?, ? " +
+                "WHERE NOT EXISTS (" +
+                "SELECT 1 " +
+                "FROM LIKES " +
+                "WHERE FILM_ID = ? " +
+                "AND USER_ID = ?" +
+                ")";
+        try {
+            if (jdbcTemplate.update(sqlQuery, filmId, userId, filmId, userId) > 0) {
+                changeRate(filmId, 1);
+            }
+        } catch (DuplicateKeyException exception) {
+            log.warn("Лайк пользователя с id {} фильму с id {} уже добавлен.", userId, filmId);
+        } catch (DataIntegrityViolationException exception) {
+            // Фильм или пользователь удалены после проверки в сервисе.
+            throw new NotFoundException("Фильма или пользователя с таким id не существует.");
+        }
         return true;
     }
 
     @Override
+    @Transactional
     public Boolean removeLike(int filmId, int userId) {
-        getFilm(filmId);
-        dbUserStorage.getUser(userId);
         final String sqlQuery = "DELETE FROM LIKES " +
-                "WHERE FILM_ID = ?" +
+                "WHERE FILM_ID = ? " +
                 "AND USER_ID = ?";
-        jdbcTemplate.update(sqlQuery, filmId, userId);
+        if (jdbcTemplate.update(sqlQuery, filmId, userId) > 0) {
+            changeRate(filmId, -1);
+        }
         return true;
     }
 
     @Override
-    public List<Film> getTopRatedFilms(int count) {
-        final String sqlQuery = "SELECT f.FILM_ID, f.NAME, f.DESCRIPTION, f.RELEASE_DATE, f.DURATION, " +
-                "m.MPA_ID, m.NAME, m.DESCRIPTION, " +
-                "g.GENRE_ID, g.NAME, " +
-                "d.DIRECTOR_ID, d.NAME " +
-                "FROM FILMS AS f " +
-                "JOIN MPA AS m ON f.MPA_ID = m.MPA_ID " +
-                "LEFT JOIN FILMS_GENRES AS fg ON f.FILM_ID = fg.FILM_ID " +
-                "LEFT JOIN GENRES AS g ON fg.GENRE_ID = g.GENRE_ID " +
-                "LEFT JOIN FILMS_DIRECTORS AS fd ON f.FILM_ID = fd.FILM_ID " +
-                "LEFT JOIN DIRECTORS AS d ON fd.DIRECTOR_ID = d.DIRECTOR_ID " +
-                "LEFT JOIN (" +
-                "SELECT l.FILM_ID, COUNT(l.USER_ID) AS rate " +
+    @Transactional
+    public void updateLikes(Collection<LikeOperation> likes) {
+        List<Object[]> addBatch = new ArrayList<>();
+        List<Object[]> removeBatch = new ArrayList<>();
+        Set<Integer> filmIds = new HashSet<>();
+        likes.forEach(like -> {
+            Object[] args = new Object[]{like.getFilmId(), like.getUserId()};
+            if (like.getOperation() == Operation.ADD) {
+                addBatch.add(args);
+            } else {
+                removeBatch.add(args);
+            }
+            filmIds.add(like.getFilmId());
+        });
+        if (filmIds.isEmpty()) {
+            return;
+        }
+        final String sqlAddQuery = "MERGE INTO LIKES (FILM_ID, USER_ID) " +
+                "KEY (FILM_ID, USER_ID) " +
+                "VALUES (?, ?)";
+        jdbcTemplate.batchUpdate(sqlAddQuery, addBatch);
+        final String sqlRemoveQuery = "DELETE FROM LIKES " +
+                "WHERE FILM_ID = ? " +
+                "AND USER_ID = ?";
+        jdbcTemplate.batchUpdate(sqlRemoveQuery, removeBatch);
+        final String sqlRateQuery = "UPDATE FILMS AS f " +
+                "SET RATE = (" +
+                "SELECT COUNT(l.USER_ID) " +
                 "FROM LIKES AS l " +
-                "GROUP BY l.FILM_ID" +
-                ") AS r ON f.FILM_ID = r.FILM_ID " +
-                "ORDER BY r.rate DESC";
-        List<Film> films = jdbcTemplate.query(sqlQuery, this::makeFilms);
-        List<Film> result = new ArrayList<>();
-        films.stream()
-                .limit(count)
-                .forEach(result::add);
-        return result;
+                "WHERE l.FILM_ID = f.FILM_ID" +
+                ") " +
+                "WHERE f.FILM_ID IN (" + String.join(", ", Collections.nCopies(filmIds.size(), "?")) + ")";
+        jdbcTemplate.update(sqlRateQuery, filmIds.toArray());
     }
 
-    private List<Film> makeFilms(ResultSet resultSet) throws SQLException {
-        List<Integer> orderId = new ArrayList<>();
-        Map<Integer, Film> films = new HashMap<>();
-        while (resultSet.next()) {
-            int id = resultSet.getInt("FILM_ID");
-            orderId.add(id);
-            films.putIfAbsent(id, Film.builder()
-                    .id(resultSet.getInt("FILM_ID"))
-                    .name(resultSet.getString("FILMS.NAME"))
-                    .description(resultSet.getString("FILMS.DESCRIPTION"))
-                    .releaseDate(resultSet.getDate("RELEASE_DATE")
-                            .toLocalDate())
-                    .duration(resultSet.getInt("DURATION"))
-                    .mpa(Mpa.builder()
-                            .id(resultSet.getInt("MPA_ID"))
-                            .name(resultSet.getString("MPA.NAME"))
-                            .description(resultSet.getString("MPA.DESCRIPTION"))
-                            .build())
-                    .build()
-            );
-            Genre genre = Genre.builder()
-                    .id(resultSet.getInt("GENRE_ID"))
-                    .name(resultSet.getString("GENRES.NAME"))
-                    .build();
-            if (genre.getId() != 0) {
-                films.get(id)
-                        .getGenres()
-                        .add(genre);
-            }
-            Director director = Director.builder()
-                    .id(resultSet.getInt("DIRECTOR_ID"))
-                    .name(resultSet.getString("DIRECTORS.NAME"))
-                    .build();
-            if (director.getId() != 0) {
-                films.get(id)
-                        .getDirectors()
-                        .add(director);
-            }
-        }
-        List<Film> orderResult = new ArrayList<>();
-        orderId.stream()
-                .distinct()
-                .forEach((id) -> orderResult.add(films.get(id)));
-        return orderResult;
+    @Override
+    public void forEachLike(BiConsumer<Integer, Integer> action) {
+        final String sqlQuery = "SELECT FILM_ID, USER_ID " +
+                "FROM LIKES";
+        jdbcTemplate.query(sqlQuery, (RowCallbackHandler) rs -> action.accept(rs.getInt("FILM_ID"), rs.getInt("USER_ID")));
+    }
+
+    private void changeRate(int filmId, int delta) {
+        final String sqlQuery = "UPDATE FILMS " +
+                "SET RATE = RATE + ? " +
+                "WHERE FILM_ID = ?";
+        jdbcTemplate.update(sqlQuery, delta, filmId);
     }
 
     @Override
-    public List<Film> getFilmsByDirectorSortLikes(int id) {
-        dbDirectorStorage.getDirector(id);
-        final String sqlQuery = "SELECT f.FILM_ID, f.NAME, f.DESCRIPTION, f.RELEASE_DATE, f.DURATION, " +
-                "m.MPA_ID, m.NAME, m.DESCRIPTION, " +
-                "g.GENRE_ID, g.NAME, " +
-                "d.DIRECTOR_ID, d.NAME " +
-                "FROM FILMS AS f " +
-                "JOIN MPA AS m ON f.MPA_ID = m.MPA_ID " +
-                "LEFT JOIN FILMS_GENRES AS fg ON f.FILM_ID = fg.FILM_ID " +
-                "LEFT JOIN GENRES AS g ON fg.GENRE_ID = g.GENRE_ID " +
-                "LEFT JOIN FILMS_DIRECTORS AS fd ON f.FILM_ID = fd.FILM_ID " +
-                "LEFT JOIN DIRECTORS AS d ON fd.DIRECTOR_ID = d.DIRECTOR_ID " +
-                "LEFT JOIN (" +
-                "SELECT l.FILM_ID, COUNT(l.USER_ID) AS rate " +
+    public int repairRates() {
+        final String sqlQuery = "UPDATE FILMS AS f " +
+                "SET RATE = (" +
+                "SELECT COUNT(l.USER_ID) " +
                 "FROM LIKES AS l " +
-                "GROUP BY l.FILM_ID" +
-                ") AS r ON f.FILM_ID = r.FILM_ID " +
-                "WHERE fd.DIRECTOR_ID = ? " +
-                "ORDER BY r.rate DESC";
-        return jdbcTemplate.query(sqlQuery, this::makeFilms, id);
+                "WHERE l.FILM_ID = f.FILM_ID" +
+                ") " +
+                "WHERE RATE <> (" +
+                "SELECT COUNT(l.USER_ID) " +
+                "FROM LIKES AS l " +
+                "WHERE l.FILM_ID = f.FILM_ID" +
+                ")";
+        return jdbcTemplate.update(sqlQuery);
     }
 
     @Override
-    public List<Film> getFilmsByDirectorSortYear(int id) {
-        dbDirectorStorage.getDirector(id);
-        final String sqlQuery = "SELECT f.FILM_ID, f.NAME, f.DESCRIPTION, f.RELEASE_DATE, f.DURATION, " +
-                "m.MPA_ID, m.NAME, m.DESCRIPTION, " +
-                "g.GENRE_ID, g.NAME, " +
-                "d.DIRECTOR_ID, d.NAME " +
-                "FROM FILMS AS f " +
-                "JOIN MPA AS m ON f.MPA_ID = m.MPA_ID " +
-                "LEFT JOIN FILMS_GENRES AS fg ON f.FILM_ID = fg.FILM_ID " +
-                "LEFT JOIN GENRES AS g ON fg.GENRE_ID = g.GENRE_ID " +
-                "LEFT JOIN FILMS_DIRECTORS AS fd ON f.FILM_ID = fd.FILM_ID " +
-                "LEFT JOIN DIRECTORS AS d ON fd.DIRECTOR_ID = d.DIRECTOR_ID " +
-                "WHERE fd.DIRECTOR_ID = ? " +
-                "ORDER BY EXTRACT(YEAR FROM f.RELEASE_DATE)";
-        return jdbcTemplate.query(sqlQuery, this::makeFilms, id);
+    public List<Film> getTopRatedFilms(int count) {
+        final String sqlQuery = "SELECT FILM_ID " +
+                "FROM FILMS " +
+                "ORDER BY RATE DESC, FILM_ID " +
+                "LIMIT ?";
+        List<Integer> filmIds = jdbcTemplate.queryForList(sqlQuery, Integer.class, count);
+        return getFilmsByIds(filmIds);
     }
 
     @Override
-    public List<Film> receiveFilmRecommendations(int userId) {
-        final String maxIntersectionByLikesUserQuery = "SELECT user_id, COUNT(film_id) AS c " +
-                "FROM likes " +
-                "WHERE film_id IN (" +
-                "SELECT film_id " +
-                "FROM likes " +
-                "WHERE user_id = ?) " +
-                "AND user_id != ? " +
-                "GROUP BY user_id " +
-                "ORDER BY c DESC " +
-                "LIMIT 1;";
-
-        final String recommendedFilmsQuery = "SELECT f.film_id, f.name, f.description, f.release_date, f.duration, " +
-                "m.mpa_id, m.name, m.description, " +
-                "g.genre_id, g.name, " +
-                "d.director_id, d.name " +
-                "FROM films AS f " +
-                "JOIN mpa AS m ON f.mpa_id = m.mpa_id " +
-                "LEFT JOIN films_genres AS fg ON f.film_id = fg.film_id " +
-                "LEFT JOIN genres AS g ON fg.genre_id = g.genre_id " +
-                "LEFT JOIN films_directors AS fd ON f.film_id = fd.film_id " +
-                "LEFT JOIN directors AS d ON fd.director_id = d.director_id " +
-                "LEFT JOIN likes AS l ON f.film_id = l.film_id " +
-                "WHERE f.film_id NOT IN (" +
-                "SELECT film_id " +
-                "FROM likes " +
-                "WHERE user_id = ?) " +
-                "AND l.user_id = ?";
-
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet(maxIntersectionByLikesUserQuery, userId, userId);
-
-        if (!rowSet.next()) {
+    public List<Film> getFilmsByIds(List<Integer> filmIds) {
+        if (filmIds.isEmpty()) {
             return new ArrayList<>();
         }
-        return jdbcTemplate.query(recommendedFilmsQuery, this::makeFilms, userId, rowSet.getInt("user_id"));
+        final String sqlQuery = FILMS_QUERY +
+                "WHERE f.FILM_ID IN (" + String.join(", ", Collections.nCopies(filmIds.size(), "?")) + ")";
+        Map<Integer, Film> films = new HashMap<>();
+        loadFilms(sqlQuery, filmIds.toArray())
+                .forEach(film -> films.put(film.getId(), film));
+        List<Film> result = new ArrayList<>();
+        filmIds.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .forEach(result::add);
+        return result;
     }
 
     @Override
-    public List<Film> searchFilmsByDirector(String query) {
-        final String sqlByDirector = "SELECT f.FILM_ID, f.NAME, f.DESCRIPTION, f.RELEASE_DATE, f.DURATION, " +
-                "m.MPA_ID, m.NAME, m.DESCRIPTION, " +
-                "g.GENRE_ID, g.NAME, " +
-                "d.DIRECTOR_ID, d.NAME " +
-                "FROM FILMS AS f " +
-                "JOIN MPA AS m ON f.MPA_ID = m.MPA_ID " +
-                "LEFT JOIN FILMS_GENRES AS fg ON f.FILM_ID = fg.FILM_ID " +
-                "LEFT JOIN GENRES AS g ON fg.GENRE_ID = g.GENRE_ID " +
-                "LEFT JOIN FILMS_DIRECTORS AS fd ON f.FILM_ID = fd.FILM_ID " +
-                "LEFT JOIN DIRECTORS AS d ON fd.DIRECTOR_ID = d.DIRECTOR_ID " +
-                "WHERE LOWER(d.name) like ? ";
-
-        return jdbcTemplate.query(sqlByDirector, this::makeFilms, query);
+    public Map<Integer, Integer> getAllRates() {
+        Map<Integer, Integer> rates = new HashMap<>();
+        final String sqlQuery = "SELECT FILM_ID, RATE " +
+                "FROM FILMS";
+        jdbcTemplate.query(sqlQuery, (RowCallbackHandler) rs -> rates.put(rs.getInt("FILM_ID"), rs.getInt("RATE")));
+        return rates;
+    }
+
+    private List<Film> loadFilms(String sqlQuery, Object... args) {
+        List<Film> films = jdbcTemplate.query(sqlQuery, this::makeFilm, args);
+        addGenresAndDirectors(films);
+        return films;
+    }
+
+    private void addGenresAndDirectors(List<Film> films) {
+        if (films.isEmpty()) {
+            return;
+        }
+        Map<Integer, Film> filmsById = new HashMap<>();
+        films.forEach(film -> filmsById.put(film.getId(), film));
+        String filmIds = String.join(", ", Collections.nCopies(filmsById.size(), "?"));
+
+        final String sqlGenresQuery = "SELECT FILM_ID, GENRE_ID " +
+                "FROM FILMS_GENRES " +
+                "WHERE FILM_ID IN (" + filmIds + ")";
+        jdbcTemplate.query(sqlGenresQuery, (RowCallbackHandler) resultSet -> filmsById.get(resultSet.getInt("FILM_ID"))
+                        .getGenres()
+                        .add(genreStorage.getGenreById(resultSet.getInt("GENRE_ID"))),
+                filmsById.keySet().toArray());
+
+        final String sqlDirectorsQuery = "SELECT fd.FILM_ID, d.DIRECTOR_ID, d.NAME " +
+                "FROM FILMS_DIRECTORS AS fd " +
+                "JOIN DIRECTORS AS d ON fd.DIRECTOR_ID = d.DIRECTOR_ID " +
+                "WHERE fd.FILM_ID IN (" + filmIds + ")";
+        jdbcTemplate.query(sqlDirectorsQuery, (RowCallbackHandler) resultSet -> filmsById.get(resultSet.getInt("FILM_ID"))
+                        .getDirectors()
+                        .add(Director.builder()
+                                .id(resultSet.getInt("DIRECTOR_ID"))
+                                .name(resultSet.getString("NAME"))
+                                .build()),
+                filmsById.keySet().toArray());
+    }
+
+    private Film makeFilm(ResultSet resultSet, int rowNum) throws SQLException {
+        return Film.builder()
+                .id(resultSet.getInt("FILM_ID"))
+                .name(resultSet.getString("NAME"))
+                .description(resultSet.getString("DESCRIPTION"))
+                .releaseDate(resultSet.getDate("RELEASE_DATE")
+                        .toLocalDate())
+                .duration(resultSet.getInt("DURATION"))
+                .mpa(mpaStorage.getMpaById(resultSet.getInt("MPA_ID")))
+                .build();
     }
 
     @Override
-    public List<Film> searchFilmsByTitle(String query) {
-        final String sqlByFilm = "SELECT f.FILM_ID, f.NAME, f.DESCRIPTION, f.RELEASE_DATE, f.DURATION, " +
-                "m.MPA_ID, m.NAME, m.DESCRIPTION, " +
-                "g.GENRE_ID, g.NAME, " +
-                "d.DIRECTOR_ID, d.NAME " +
-                "FROM FILMS AS f " +
-                "JOIN MPA AS m ON f.MPA_ID = m.MPA_ID " +
-                "LEFT JOIN FILMS_GENRES AS fg ON f.FILM_ID = fg.FILM_ID " +
-                "LEFT JOIN GENRES AS g ON fg.GENRE_ID = g.GENRE_ID " +
-                "LEFT JOIN FILMS_DIRECTORS AS fd ON f.FILM_ID = fd.FILM_ID " +
-                "LEFT JOIN DIRECTORS AS d ON fd.DIRECTOR_ID = d.DIRECTOR_ID " +
-                "WHERE LOWER(f.name) like ?";
-        return jdbcTemplate.query(sqlByFilm, this::makeFilms, query);
+    public List<Film> getFilmsByDirectorSortLikes(int id) {
+        checkDirectorExists(id);
+        final String sqlQuery = FILMS_QUERY +
+                "WHERE f.FILM_ID IN (" +
+                "SELECT FILM_ID " +
+                "FROM FILMS_DIRECTORS " +
+                "WHERE DIRECTOR_ID = ?" +
+                ") " +
+                "ORDER BY f.RATE DESC, f.FILM_ID";
+        return loadFilms(sqlQuery, id);
     }
 
     @Override
-    public List<Film> searchFilmsByDirectorOrFilm(String filmName, String directorName) {
-        final String sqlByFilmOrDirector = "SELECT f.FILM_ID, f.NAME, f.DESCRIPTION, f.RELEASE_DATE, f.DURATION, " +
-                "m.MPA_ID, m.NAME, m.DESCRIPTION, " +
-                "g.GENRE_ID, g.NAME, " +
-                "d.DIRECTOR_ID, d.NAME " +
-                "FROM FILMS AS f " +
-                "JOIN MPA AS m ON f.MPA_ID = m.MPA_ID " +
-                "LEFT JOIN FILMS_GENRES AS fg ON f.FILM_ID = fg.FILM_ID " +
-                "LEFT JOIN GENRES AS g ON fg.GENRE_ID = g.GENRE_ID " +
-                "LEFT JOIN FILMS_DIRECTORS AS fd ON f.FILM_ID = fd.FILM_ID " +
-                "LEFT JOIN DIRECTORS AS d ON fd.DIRECTOR_ID = d.DIRECTOR_ID " +
-                "LEFT JOIN LIKES l on f.film_id = l.film_id " +
-                "WHERE LOWER(f.name) LIKE ? OR " +
-                "LOWER(d.name) LIKE ? " +
-                "GROUP BY f.film_id, g.GENRE_ID, d.DIRECTOR_ID " +
-                "ORDER BY COUNT(l.film_id) DESC";
-        return jdbcTemplate.query(sqlByFilmOrDirector, this::makeFilms, filmName, directorName);
+    public List<Film> getFilmsByDirectorSortYear(int id) {
+        checkDirectorExists(id);
+        final String sqlQuery = FILMS_QUERY +
+                "WHERE f.FILM_ID IN (" +
+                "SELECT FILM_ID " +
+                "FROM FILMS_DIRECTORS " +
+                "WHERE DIRECTOR_ID = ?" +
+                ") " +
+                "ORDER BY EXTRACT(YEAR FROM f.RELEASE_DATE), f.FILM_ID";
+        return loadFilms(sqlQuery, id);
+    }
+
+    private void checkDirectorExists(int directorId) {
+        if (!dbDirectorStorage.existsDirector(directorId)) {
+            throw new NotFoundException("Режиссера с таким id не существует.");
+        }
     }
 }
@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+// Сброс кэша фильмов, когда меняются связанные с фильмами данные мимо хранилища фильмов.
+public interface FilmCache {
+    void invalidate(int filmId);
+
+    void invalidateAll();
+}
@@ -1,22 +1,33 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     Film createFilm (Film film);
     Film updateFilm(Film film);
     Film getFilm(int filmId);
+    boolean existsFilm(int filmId);
+    Set<Integer> findExistingFilmIds(Collection<Integer> filmIds);
+    List<Film> getFilmsByIds(List<Integer> filmIds);
+    Map<Integer, Integer> getAllRates();
     Boolean deleteFilm(int id);
     List<Film> getAllFilms();
+    List<Film> getFilms(int afterId, int limit);
+    void exportFilms(Consumer<Film> consumer);
     Boolean addLike(int filmId, int userId);
     Boolean removeLike(int filmId, int userId);
+    void updateLikes(Collection<LikeOperation> likes);
+    void forEachLike(BiConsumer<Integer, Integer> action);
+    int repairRates();
     List<Film> getTopRatedFilms(int count);
     List<Film> getFilmsByDirectorSortLikes(int directorId);
     List<Film> getFilmsByDirectorSortYear(int directorId);
-    List<Film> searchFilmsByDirector(String query);
-    List<Film> searchFilmsByTitle(String query);
-    List<Film> searchFilmsByDirectorOrFilm(String filmName, String directorName);
-    List<Film> receiveFilmRecommendations(int userID);
 }
@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.storage.genre;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.List;
+
+@Component
+@Primary
+@Slf4j
+@RequiredArgsConstructor
+public class CachedGenreStorage implements GenreStorage {
+    private final DbGenreStorage dbGenreStorage;
+
+    private volatile Genre[] genresById = new Genre[0];
+    private volatile List<Genre> genres = Collections.emptyList();
+
+    @PostConstruct
+    public void reload() {
+        List<Genre> loaded = dbGenreStorage.getAllGenres();
+        Genre[] byId = new Genre[loaded.stream()
+                .mapToInt(Genre::getId)
+                .max()
+                .orElse(0) + 1];
+        loaded.forEach(genre -> byId[genre.getId()] = genre);
+        genresById = byId;
+        genres = Collections.unmodifiableList(loaded);
+        log.info("Загружено {} жанров.", loaded.size());
+    }
+
+    @Override
+    public List<Genre> getAllGenres() {
+        return genres;
+    }
+
+    @Override
+    public Genre getGenreById(int id) {
+        Genre[] byId = genresById;
+        if (id <= 0 || id >= byId.length || byId[id] == null) {
+            throw new NotFoundException("Жанра с таким id не существует.");
+        }
+        return byId[id];
+    }
+}
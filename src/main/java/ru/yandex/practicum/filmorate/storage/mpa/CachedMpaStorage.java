@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.storage.mpa;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+@Component
+@Primary
+@Slf4j
+@RequiredArgsConstructor
+public class CachedMpaStorage implements MpaStorage {
+    private final DbMpaStorage dbMpaStorage;
+
+    private volatile Mpa[] mpaById = new Mpa[0];
+    private volatile List<Mpa> mpa = Collections.emptyList();
+
+    @PostConstruct
+    public void reload() {
+        List<Mpa> loaded = dbMpaStorage.getAllMpa();
+        loaded.sort(Comparator.comparing(Mpa::getId));
+        Mpa[] byId = new Mpa[loaded.stream()
+                .mapToInt(Mpa::getId)
+                .max()
+                .orElse(0) + 1];
+        loaded.forEach(rating -> byId[rating.getId()] = rating);
+        mpaById = byId;
+        mpa = Collections.unmodifiableList(loaded);
+        log.info("Загружено {} рейтингов MPA.", loaded.size());
+    }
+
+    @Override
+    public List<Mpa> getAllMpa() {
+        return mpa;
+    }
+
+    @Override
+    public Mpa getMpaById(int id) {
+        Mpa[] byId = mpaById;
+        if (id <= 0 || id >= byId.length || byId[id] == null) {
+            throw new NotFoundException("Рейтинга MPA с таким id не существует.");
+        }
+        return byId[id];
+    }
+}
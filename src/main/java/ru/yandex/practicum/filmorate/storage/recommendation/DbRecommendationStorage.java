@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.storage.recommendation;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Component
+@RequiredArgsConstructor
+public class DbRecommendationStorage implements RecommendationStorage {
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional
+    public void replaceRecommendations(Map<Integer, List<Integer>> filmIdsByUser) {
+        jdbcTemplate.update("DELETE FROM USER_RECOMMENDATIONS");
+
+        // Фильм или пользователь могли быть удалены после снимка лайков, такие строки пропускаются.
+        final String sqlQuery = "INSERT INTO USER_RECOMMENDATIONS (USER_ID, SORT_ORDER, FILM_ID) " +
+                "SELECT u.USER_ID, ?, f.FILM_ID " +
+                "FROM USERS AS u, FILMS AS f " +
+                "WHERE u.USER_ID = ? " +
+                "AND f.FILM_ID = ?";
+        List<Object[]> batch = new ArrayList<>();
+        filmIdsByUser.forEach((userId, filmIds) -> {
+            for (int i = 0; i < filmIds.size(); i++) {
+                batch.add(new Object[]{i, userId, filmIds.get(i)});
+            }
+        });
+        jdbcTemplate.batchUpdate(sqlQuery, batch);
+    }
+
+    @Override
+    public List<Integer> getRecommendedFilmIds(int userId) {
+        final String sqlQuery = "SELECT FILM_ID " +
+                "FROM USER_RECOMMENDATIONS " +
+                "WHERE USER_ID = ? " +
+                "ORDER BY SORT_ORDER";
+        return jdbcTemplate.queryForList(sqlQuery, Integer.class, userId);
+    }
+}
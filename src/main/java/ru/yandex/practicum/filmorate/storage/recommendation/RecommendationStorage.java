@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.storage.recommendation;
+
+import java.util.List;
+import java.util.Map;
+
+public interface RecommendationStorage {
+    void replaceRecommendations(Map<Integer, List<Integer>> filmIdsByUser);
+    List<Integer> getRecommendedFilmIds(int userId);
+}
@@ -0,0 +1,276 @@
+package ru.yandex.practicum.filmorate.storage.review;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Review;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Кэш лучших по полезности отзывов для каждого фильма. Списки обновляются на месте при оценках,
+// создании, изменении и удалении отзывов; фильмы, которые давно не запрашивали, вытесняются.
+// В неполном списке хранятся первые отзывы фильма в порядке (USEFUL DESC, REVIEW_ID), а все
+// остальные отзывы идут после последнего из них.
+@Component
+@Primary
+@Slf4j
+public class CachedReviewStorage implements ReviewStorage, ReviewCache {
+    private static final Comparator<Review> ORDER = Comparator.comparingInt(Review::getUseful).reversed()
+            .thenComparingInt(Review::getReviewId);
+    private static final int STRIPES = 64;
+
+    private final DbReviewStorage dbReviewStorage;
+    private final int topSize;
+    private final Map<Integer, Leaderboard> leaderboards;
+    // Изменения одного отзыва упорядочены: он перечитывается из базы и кладется в кэш под блокировкой
+    // своей полосы, изменения разных отзывов идут параллельно.
+    private final Object[] reviewLocks = new Object[STRIPES];
+    // Версии полос фильмов, меняются под монитором leaderboards при каждом изменении отзывов фильма.
+    // Загруженный из базы список кладется в кэш, только если версия за время загрузки не изменилась.
+    private final long[] filmVersions = new long[STRIPES];
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public CachedReviewStorage(DbReviewStorage dbReviewStorage,
+                               @Value("${filmorate.reviews.cache.max-films}") int maxFilms,
+                               @Value("${filmorate.reviews.cache.top-size}") int topSize) {
+        this.dbReviewStorage = dbReviewStorage;
+        this.topSize = topSize;
+        this.leaderboards = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Leaderboard> eldest) {
+                return size() > maxFilms;
+            }
+        };
+        for (int i = 0; i < STRIPES; i++) {
+            reviewLocks[i] = new Object();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public void invalidate(int filmId) {
+        synchronized (leaderboards) {
+            leaderboards.remove(filmId);
+            filmVersions[stripe(filmId)]++;
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        synchronized (leaderboards) {
+            leaderboards.clear();
+            for (int i = 0; i < STRIPES; i++) {
+                filmVersions[i]++;
+            }
+        }
+        log.info("Кэш отзывов очищен, попаданий {}, промахов {}.", hits.get(), misses.get());
+    }
+
+    @Override
+    public Optional<Review> createReview(Review review) {
+        Optional<Review> created = dbReviewStorage.createReview(review);
+        created.ifPresent(this::place);
+        return created;
+    }
+
+    @Override
+    public Optional<Review> getReviewById(int id) {
+        return dbReviewStorage.getReviewById(id);
+    }
+
+    @Override
+    public List<Review> getReviews(int filmId, int count) {
+        if (filmId == -1 || count > topSize) {
+            return dbReviewStorage.getReviews(filmId, count);
+        }
+        long version;
+        synchronized (leaderboards) {
+            Leaderboard leaderboard = leaderboards.get(filmId);
+            if (leaderboard != null && (leaderboard.complete || count <= leaderboard.reviews.size())) {
+                hits.incrementAndGet();
+                return leaderboard.reviews.stream()
+                        .limit(count)
+                        .map(CachedReviewStorage::copy)
+                        .collect(Collectors.toList());
+            }
+            version = filmVersions[stripe(filmId)];
+        }
+        misses.incrementAndGet();
+        List<Review> reviews = dbReviewStorage.getReviews(filmId, topSize + 1);
+        Leaderboard leaderboard = new Leaderboard(reviews.size() <= topSize);
+        reviews.stream()
+                .limit(topSize)
+                .forEach(review -> leaderboard.add(copy(review)));
+        synchronized (leaderboards) {
+            if (filmVersions[stripe(filmId)] == version) {
+                leaderboards.put(filmId, leaderboard);
+            }
+        }
+        return reviews.stream()
+                .limit(count)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Review> getReviewsAfter(int filmId, int useful, int reviewId, int count) {
+        return dbReviewStorage.getReviewsAfter(filmId, useful, reviewId, count);
+    }
+
+    @Override
+    public Optional<Review> updateReview(Review review) {
+        synchronized (reviewLock(review.getReviewId())) {
+            Optional<Review> updated = dbReviewStorage.updateReview(review);
+            updated.ifPresent(this::place);
+            return updated;
+        }
+    }
+
+    @Override
+    public int addLikeReview(int id, int userId) {
+        synchronized (reviewLock(id)) {
+            return moved(id, dbReviewStorage.addLikeReview(id, userId));
+        }
+    }
+
+    @Override
+    public int addDislikeReview(int id, int userId) {
+        synchronized (reviewLock(id)) {
+            return moved(id, dbReviewStorage.addDislikeReview(id, userId));
+        }
+    }
+
+    @Override
+    public int removeLikeReview(int id, int userId) {
+        synchronized (reviewLock(id)) {
+            return moved(id, dbReviewStorage.removeLikeReview(id, userId));
+        }
+    }
+
+    @Override
+    public int removeDislikeReview(int id, int userId) {
+        synchronized (reviewLock(id)) {
+            return moved(id, dbReviewStorage.removeDislikeReview(id, userId));
+        }
+    }
+
+    @Override
+    public Boolean removeReview(int id) {
+        synchronized (reviewLock(id)) {
+            Review review = dbReviewStorage.getReviewById(id)
+                    .orElseThrow(() -> new NotFoundException("Отзыв не найден"));
+            Boolean removed = dbReviewStorage.removeReview(id);
+            synchronized (leaderboards) {
+                filmVersions[stripe(review.getFilmId())]++;
+                Leaderboard leaderboard = leaderboards.get(review.getFilmId());
+                if (leaderboard != null) {
+                    leaderboard.remove(id);
+                }
+            }
+            return removed;
+        }
+    }
+
+    @Override
+    public List<Integer> findFilmIdsByUser(int userId) {
+        return dbReviewStorage.findFilmIdsByUser(userId);
+    }
+
+    @Override
+    public int repairUseful() {
+        int repaired = dbReviewStorage.repairUseful();
+        if (repaired > 0) {
+            invalidateAll();
+        }
+        return repaired;
+    }
+
+    private int moved(int id, int delta) {
+        if (delta != 0) {
+            dbReviewStorage.getReviewById(id).ifPresent(this::place);
+        }
+        return delta;
+    }
+
+    // Отзыв с новыми данными встает на свое место. Если в неполном списке место отзыва оказывается
+    // после последнего, его позиция среди некэшированных отзывов неизвестна, и отзыв из списка выпадает.
+    private void place(Review review) {
+        synchronized (leaderboards) {
+            filmVersions[stripe(review.getFilmId())]++;
+            Leaderboard leaderboard = leaderboards.get(review.getFilmId());
+            if (leaderboard == null) {
+                return;
+            }
+            leaderboard.remove(review.getReviewId());
+            if (leaderboard.complete
+                    || !leaderboard.reviews.isEmpty() && ORDER.compare(review, leaderboard.reviews.last()) < 0) {
+                leaderboard.add(copy(review));
+                if (leaderboard.reviews.size() > topSize) {
+                    leaderboard.remove(leaderboard.reviews.last().getReviewId());
+                    leaderboard.complete = false;
+                }
+            } else if (leaderboard.reviews.isEmpty()) {
+                leaderboards.remove(review.getFilmId());
+            }
+        }
+    }
+
+    private Object reviewLock(int reviewId) {
+        return reviewLocks[stripe(reviewId)];
+    }
+
+    private static int stripe(int id) {
+        return Math.floorMod(id, STRIPES);
+    }
+
+    private static Review copy(Review review) {
+        return Review.builder()
+                .reviewId(review.getReviewId())
+                .content(review.getContent())
+                .isPositive(review.getIsPositive())
+                .userId(review.getUserId())
+                .filmId(review.getFilmId())
+                .useful(review.getUseful())
+                .build();
+    }
+
+    private static class Leaderboard {
+        private final TreeSet<Review> reviews = new TreeSet<>(ORDER);
+        private final Map<Integer, Review> reviewsById = new HashMap<>();
+        private boolean complete;
+
+        private Leaderboard(boolean complete) {
+            this.complete = complete;
+        }
+
+        private void add(Review review) {
+            reviews.add(review);
+            reviewsById.put(review.getReviewId(), review);
+        }
+
+        private void remove(int reviewId) {
+            Review review = reviewsById.remove(reviewId);
+            if (review != null) {
+                reviews.remove(review);
+            }
+        }
+    }
+}
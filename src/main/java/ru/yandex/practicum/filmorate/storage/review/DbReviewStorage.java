@@ -1,17 +1,19 @@
 package ru.yandex.practicum.filmorate.storage.review;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Review;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -38,29 +40,14 @@ public class DbReviewStorage implements ReviewStorage {
                     keyHolder
             );
             review.setReviewId(Objects.requireNonNull(keyHolder.getKey()).intValue());
+            review.setUseful(0);
             return Optional.of(review);
         }
 
     @Override
     public Optional<Review> getReviewById(int id) {
-        final String sqlQuery = "SELECT  *, IFNULL(R.COUNT_LIKE, 0) - IFNULL(R.COUNT_DISLAIKE, 0) AS USEFUL " +
-                "FROM (SELECT R.*, L.COUNT_LIKE, L.COUNT_DISLAIKE " +
-                "FROM REVIEWS AS R " +
-                "LEFT JOIN (SELECT LR.REVIEW_ID AS REVIEW_ID, COUNT(USER_ID) AS COUNT_LIKE, COUNT_DISLAIKE " +
-                "FROM LIKES_REVIEWS AS LR " +
-                "LEFT JOIN (SELECT DL.REVIEW_ID, COUNT(USER_ID) AS COUNT_DISLAIKE " +
-                "FROM DISLIKE_REVIEWS AS DL " +
-                "GROUP BY DL.REVIEW_ID " +
-                ") AS DL ON LR.REVIEW_ID = DL.REVIEW_ID " +
-                "GROUP BY LR.REVIEW_ID " +
-                "UNION " +
-                "SELECT DL.REVIEW_ID AS REVIEW_ID, COUNT_LIKE, COUNT(USER_ID) AS COUNT_DISLAIKE " +
-                "FROM DISLIKE_REVIEWS AS DL " +
-                "LEFT JOIN (SELECT LR.REVIEW_ID, COUNT(USER_ID) AS COUNT_LIKE " +
-                "FROM LIKES_REVIEWS AS LR " +
-                "GROUP BY LR.REVIEW_ID " +
-                ") AS LR ON DL.REVIEW_ID = LR.REVIEW_ID " +
-                "GROUP BY DL.REVIEW_ID) AS L ON R.REVIEW_ID = L.REVIEW_ID) AS R " +
+        final String sqlQuery = "SELECT * " +
+                "FROM REVIEWS " +
                 "WHERE REVIEW_ID = ?";
         try {
             return Optional.of(jdbcTemplate.query(sqlQuery, this::makeReview, id).get(0));
@@ -70,55 +57,72 @@ public class DbReviewStorage implements ReviewStorage {
     }
 
     @Override
-    public Collection<Review> getReviews(int filmId, int count) {
+    public List<Review> getReviews(int filmId, int count) {
         if (filmId == -1) {
-            final String sqlQuery = "SELECT  *, IFNULL(R.COUNT_LIKE, 0) - IFNULL(R.COUNT_DISLAIKE, 0) AS USEFUL " +
-                    "FROM (SELECT R.*, L.COUNT_LIKE, L.COUNT_DISLAIKE " +
-                    "FROM REVIEWS AS R " +
-                    "LEFT JOIN (SELECT LR.REVIEW_ID AS REVIEW_ID, COUNT(USER_ID) AS COUNT_LIKE, COUNT_DISLAIKE " +
-                    "FROM LIKES_REVIEWS AS LR " +
-                    "LEFT JOIN (SELECT DL.REVIEW_ID, COUNT(USER_ID) AS COUNT_DISLAIKE " +
-                    "FROM DISLIKE_REVIEWS AS DL " +
-                    "GROUP BY DL.REVIEW_ID " +
-                    ") AS DL ON LR.REVIEW_ID = DL.REVIEW_ID " +
-                    "GROUP BY LR.REVIEW_ID " +
-                    "UNION " +
-                    "SELECT DL.REVIEW_ID AS REVIEW_ID, COUNT_LIKE, COUNT(USER_ID) AS COUNT_DISLAIKE " +
-                    "FROM DISLIKE_REVIEWS AS DL " +
-                    "LEFT JOIN (SELECT LR.REVIEW_ID, COUNT(USER_ID) AS COUNT_LIKE " +
-                    "FROM LIKES_REVIEWS AS LR " +
-                    "GROUP BY LR.REVIEW_ID " +
-                    ") AS LR ON DL.REVIEW_ID = LR.REVIEW_ID " +
-                    "GROUP BY DL.REVIEW_ID) AS L ON R.REVIEW_ID = L.REVIEW_ID) AS R " +
-                    "ORDER BY  USEFUL DESC " +
+            final String sqlQuery = "SELECT * " +
+                    "FROM REVIEWS " +
+                    "ORDER BY USEFUL DESC, REVIEW_ID " +
                     "LIMIT ?";
             return jdbcTemplate.query(sqlQuery, this::makeReview, count);
         } else {
-            final String sqlQuery = "SELECT  *, IFNULL(R.COUNT_LIKE, 0) - IFNULL(R.COUNT_DISLAIKE, 0) AS USEFUL " +
-                    "FROM (SELECT R.*, L.COUNT_LIKE, L.COUNT_DISLAIKE " +
-                    "FROM REVIEWS AS R " +
-                    "LEFT JOIN (SELECT LR.REVIEW_ID AS REVIEW_ID, COUNT(USER_ID) AS COUNT_LIKE, COUNT_DISLAIKE " +
-                    "FROM LIKES_REVIEWS AS LR " +
-                    "LEFT JOIN (SELECT DL.REVIEW_ID, COUNT(USER_ID) AS COUNT_DISLAIKE " +
-                    "FROM DISLIKE_REVIEWS AS DL " +
-                    "GROUP BY DL.REVIEW_ID " +
-                    ") AS DL ON LR.REVIEW_ID = DL.REVIEW_ID " +
-                    "GROUP BY LR.REVIEW_ID " +
-                    "UNION " +
-                    "SELECT DL.REVIEW_ID AS REVIEW_ID, COUNT_LIKE, COUNT(USER_ID) AS COUNT_DISLAIKE " +
-                    "FROM DISLIKE_REVIEWS AS DL " +
-                    "LEFT JOIN (SELECT LR.REVIEW_ID, COUNT(USER_ID) AS COUNT_LIKE " +
-                    "FROM LIKES_REVIEWS AS LR " +
-                    "GROUP BY LR.REVIEW_ID " +
-                    ") AS LR ON DL.REVIEW_ID = LR.REVIEW_ID " +
-                    "GROUP BY DL.REVIEW_ID) AS L ON R.REVIEW_ID = L.REVIEW_ID) AS R " +
+            final String sqlQuery = "SELECT * " +
+                    "FROM REVIEWS " +
                     "WHERE FILM_ID = ? " +
-                    "ORDER BY  USEFUL DESC " +
+                    "ORDER BY USEFUL DESC, REVIEW_ID " +
                     "LIMIT ?";
             return jdbcTemplate.query(sqlQuery, this::makeReview, filmId, count);
         }
     }
 
+    // Следующая страница после отзыва с полезностью useful и id reviewId в порядке (USEFUL DESC, REVIEW_ID).
+    // Ветки «та же полезность, id больше» и «полезность меньше» читаются по индексу отдельно, каждая не
+    // больше count строк, вместо одного условия с OR, по которому индекс используется только частично.
+    @Override
+    public List<Review> getReviewsAfter(int filmId, int useful, int reviewId, int count) {
+        if (filmId == -1) {
+            final String sqlQuery = "SELECT * " +
+                    "FROM ((" +
+                    "SELECT * " +
+                    "FROM REVIEWS " +
+                    "WHERE USEFUL = ? " +
+                    "AND REVIEW_ID > ? " +
+                    "ORDER BY REVIEW_ID " +
+                    "LIMIT ?" +
+                    ") UNION ALL (" +
+                    "SELECT * " +
+                    "FROM REVIEWS " +
+                    "WHERE USEFUL < ? " +
+                    "ORDER BY USEFUL DESC, REVIEW_ID " +
+                    "LIMIT ?" +
+                    ")) AS r " +
+                    "ORDER BY USEFUL DESC, REVIEW_ID " +
+                    "LIMIT ?";
+            return jdbcTemplate.query(sqlQuery, this::makeReview, useful, reviewId, count, useful, count, count);
+        } else {
+            final String sqlQuery = "SELECT * " +
+                    "FROM ((" +
+                    "SELECT * " +
+                    "FROM REVIEWS " +
+                    "WHERE FILM_ID = ? " +
+                    "AND USEFUL = ? " +
+                    "AND REVIEW_ID > ? " +
+                    "ORDER BY REVIEW_ID " +
+                    "LIMIT ?" +
+                    ") UNION ALL (" +
+                    "SELECT * " +
+                    "FROM REVIEWS " +
+                    "WHERE FILM_ID = ? " +
+                    "AND USEFUL < ? " +
+                    "ORDER BY USEFUL DESC, REVIEW_ID " +
+                    "LIMIT ?" +
+                    ")) AS r " +
+                    "ORDER BY USEFUL DESC, REVIEW_ID " +
+                    "LIMIT ?";
+            return jdbcTemplate.query(sqlQuery, this::makeReview,
+                    filmId, useful, reviewId, count, filmId, useful, count, count);
+        }
+    }
+
     @Override
     public Optional<Review> updateReview(Review review) {
         final String sqlQuery = "UPDATE REVIEWS SET CONTENT = ?, IS_POSITIVE = ?" +
@@ -131,33 +135,79 @@ public class DbReviewStorage implements ReviewStorage {
     }
 
     @Override
-    public Boolean addLikeReview(int id, int userId) {
-        final String sqlQueryFilm = "INSERT INTO LIKES_REVIEWS (REVIEW_ID, USER_ID)" +
-                "VALUES (?, ?)";
-        jdbcTemplate.update(sqlQueryFilm, id, userId);
-        return true;
+    @Transactional
+    public int addLikeReview(int id, int userId) {
+        return vote(id, userId, 1);
     }
 
     @Override
-    public Boolean addDislikeReview(int id, int userId) {
-        final String sqlQueryFilm = "INSERT INTO DISLIKE_REVIEWS (REVIEW_ID, USER_ID)" +
-                "VALUES (?, ?)";
-        jdbcTemplate.update(sqlQueryFilm, id, userId);
-        return true;
+    @Transactional
+    public int addDislikeReview(int id, int userId) {
+        return vote(id, userId, -1);
     }
 
     @Override
-    public Boolean removeLikeReview(int id, int userId) {
-        final String sqlQuery = "DELETE FROM LIKES_REVIEWS WHERE REVIEW_ID = ? AND USER_ID = ?";
-        jdbcTemplate.update(sqlQuery, id, userId);
-        return true;
+    @Transactional
+    public int removeLikeReview(int id, int userId) {
+        return removeVote(id, userId, 1);
     }
 
     @Override
-    public Boolean removeDislikeReview(int id, int userId) {
-        final String sqlQuery = "DELETE FROM DISLIKE_REVIEWS WHERE REVIEW_ID = ? AND USER_ID = ?";
-        jdbcTemplate.update(sqlQuery, id, userId);
-        return true;
+    @Transactional
+    public int removeDislikeReview(int id, int userId) {
+        return removeVote(id, userId, -1);
+    }
+
+    // Оценки удаленных пользователей удаляются каскадно, не меняя USEFUL, поэтому счетчик периодически сверяется.
+    @Override
+    public int repairUseful() {
+        final String sqlQuery = "UPDATE REVIEWS AS r " +
+                "SET USEFUL = (" +
+                "SELECT COALESCE(SUM(v.VOTE), 0) FROM REVIEW_VOTES AS v WHERE v.REVIEW_ID = r.REVIEW_ID" +
+                ") " +
+                "WHERE USEFUL <> (" +
+                "SELECT COALESCE(SUM(v.VOTE), 0) FROM REVIEW_VOTES AS v WHERE v.REVIEW_ID = r.REVIEW_ID" +
+                ")";
+        return jdbcTemplate.update(sqlQuery);
+    }
+
+    // Повторная оценка ничего не меняет, противоположная заменяет прежнюю. Возвращает изменение полезности.
+    private int vote(int id, int userId, int vote) {
+        final String sqlQuery = "SELECT VOTE " +
+                "FROM OLD TABLE (" +
+                "MERGE INTO REVIEW_VOTES (REVIEW_ID, USER_ID, VOTE) " +
+                "KEY (REVIEW_ID, USER_ID) " +
+                "VALUES (?, ?, ?)" +
+                ")";
+        List<Integer> previous;
+        try {
+            previous = jdbcTemplate.queryForList(sqlQuery, Integer.class, id, userId, vote);
+        } catch (DataIntegrityViolationException exception) {
+            throw new NotFoundException("Отзыв или пользователь не найден");
+        }
+        int delta = vote - (previous.isEmpty() ? 0 : previous.get(0));
+        changeUseful(id, delta);
+        return delta;
+    }
+
+    private int removeVote(int id, int userId, int vote) {
+        final String sqlQuery = "DELETE FROM REVIEW_VOTES " +
+                "WHERE REVIEW_ID = ? " +
+                "AND USER_ID = ? " +
+                "AND VOTE = ?";
+        int delta = -vote * jdbcTemplate.update(sqlQuery, id, userId, vote);
+        changeUseful(id, delta);
+        return delta;
+    }
+
+    private void changeUseful(int id, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        final String sqlQuery = "UPDATE REVIEWS " +
+                "SET USEFUL = USEFUL + ? " +
+                "WHERE REVIEW_ID = ?";
+        jdbcTemplate.update(sqlQuery, delta, id);
     }
 
     @Override
@@ -166,6 +216,20 @@ public class DbReviewStorage implements ReviewStorage {
         return true;
     }
 
+    // Фильмы, у которых пользователь оставил отзыв или оценил чужой отзыв.
+    @Override
+    public List<Integer> findFilmIdsByUser(int userId) {
+        final String sqlQuery = "SELECT FILM_ID " +
+                "FROM REVIEWS " +
+                "WHERE USER_ID = ? " +
+                "UNION " +
+                "SELECT r.FILM_ID " +
+                "FROM REVIEW_VOTES AS v " +
+                "JOIN REVIEWS AS r ON r.REVIEW_ID = v.REVIEW_ID " +
+                "WHERE v.USER_ID = ?";
+        return jdbcTemplate.queryForList(sqlQuery, Integer.class, userId, userId);
+    }
+
     private Review makeReview(ResultSet resultSet, int rowNum) throws SQLException {
         return Review.builder()
                 .reviewId(resultSet.getInt("REVIEW_ID"))
@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.storage.review;
+
+// Сброс кэша отзывов, когда отзывы или оценки удаляются каскадом мимо хранилища отзывов.
+public interface ReviewCache {
+    void invalidate(int filmId);
+
+    void invalidateAll();
+}
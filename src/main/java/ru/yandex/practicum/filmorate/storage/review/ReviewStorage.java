@@ -2,7 +2,7 @@ package ru.yandex.practicum.filmorate.storage.review;
 
 import ru.yandex.practicum.filmorate.model.Review;
 
-import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface ReviewStorage {
@@ -10,17 +10,23 @@ public interface ReviewStorage {
 
     Optional<Review> getReviewById(int id);
 
-    Collection<Review> getReviews(int filmId, int count);
+    List<Review> getReviews(int filmId, int count);
+
+    List<Review> getReviewsAfter(int filmId, int useful, int reviewId, int count);
 
     Optional<Review> updateReview(Review review);
 
-    Boolean addLikeReview(int id, int userId);
+    int addLikeReview(int id, int userId);
 
-    Boolean addDislikeReview(int id, int userId);
+    int addDislikeReview(int id, int userId);
 
-    Boolean removeLikeReview(int id, int userId);
+    int removeLikeReview(int id, int userId);
 
-    Boolean removeDislikeReview(int id, int userId);
+    int removeDislikeReview(int id, int userId);
 
     Boolean removeReview(int id);
+
+    List<Integer> findFilmIdsByUser(int userId);
+
+    int repairUseful();
 }
@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.storage.timeline;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.enums.EventType;
+import ru.yandex.practicum.filmorate.enums.Operation;
+import ru.yandex.practicum.filmorate.model.Feed;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class DbTimelineStorage implements TimelineStorage {
+    private final JdbcTemplate jdbcTemplate;
+
+    // Раскладывает только что записанные события по лентам подписчиков автора. События авторов,
+    // у которых подписчиков больше порога, не раскладываются, а читаются напрямую.
+    @Override
+    public void fanOut(Collection<Long> eventIds, int celebrityThreshold) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        final String sqlQuery = "MERGE INTO TIMELINE (USER_ID, EVENT_ID) " +
+                "KEY (USER_ID, EVENT_ID) " +
+                "SELECT fr.USER_ID, f.EVENT_ID " +
+                "FROM FEED AS f " +
+                "JOIN USERS AS u ON u.USER_ID = f.USER_ID " +
+                "JOIN FRIENDSHIP AS fr ON fr.FRIEND_ID = f.USER_ID " +
+                "WHERE f.EVENT_ID IN (" + String.join(", ", Collections.nCopies(eventIds.size(), "?")) + ") " +
+                "AND u.FOLLOWERS_COUNT <= ?";
+        List<Object> args = new ArrayList<>(eventIds);
+        args.add(celebrityThreshold);
+        jdbcTemplate.update(sqlQuery, args.toArray());
+    }
+
+    // Каждая ветка читает не больше limit строк по своему индексу: разложенные события по ключу TIMELINE,
+    // события популярных друзей по FEED (USER_ID, EVENT_ID). События, разложенные до того, как автор
+    // стал популярным, берутся только из первой ветки.
+    @Override
+    public List<Feed> findByUserId(int userId, long beforeEventId, int limit, int celebrityThreshold) {
+        final String sqlQuery = "SELECT * " +
+                "FROM ((" +
+                "SELECT f.* " +
+                "FROM TIMELINE AS t " +
+                "JOIN FEED AS f ON f.EVENT_ID = t.EVENT_ID " +
+                "WHERE t.USER_ID = ? " +
+                "AND t.EVENT_ID < ? " +
+                "ORDER BY t.EVENT_ID DESC " +
+                "LIMIT ?" +
+                ") UNION ALL (" +
+                "SELECT f.* " +
+                "FROM FRIENDSHIP AS fr " +
+                "JOIN USERS AS u ON u.USER_ID = fr.FRIEND_ID " +
+                "JOIN FEED AS f ON f.USER_ID = fr.FRIEND_ID " +
+                "WHERE fr.USER_ID = ? " +
+                "AND u.FOLLOWERS_COUNT > ? " +
+                "AND f.EVENT_ID < ? " +
+                "AND NOT EXISTS (" +
+                "SELECT 1 " +
+                "FROM TIMELINE AS t " +
+                "WHERE t.USER_ID = fr.USER_ID " +
+                "AND t.EVENT_ID = f.EVENT_ID" +
+                ") " +
+                "ORDER BY f.EVENT_ID DESC " +
+                "LIMIT ?" +
+                ")) AS tl " +
+                "ORDER BY EVENT_ID DESC " +
+                "LIMIT ?";
+        return jdbcTemplate.query(sqlQuery, this::makeFeed,
+                userId, beforeEventId, limit, userId, celebrityThreshold, beforeEventId, limit, limit);
+    }
+
+    // Раскладывает в ленту пользователя последние limit событий нового друга, записанные до дружбы,
+    // чтобы друг, не считающийся популярным, показывал историю так же, как популярный.
+    @Override
+    public void backfill(int userId, int friendId, int limit, int celebrityThreshold) {
+        final String sqlQuery = "MERGE INTO TIMELINE (USER_ID, EVENT_ID) " +
+                "KEY (USER_ID, EVENT_ID) " +
+                "SELECT fr.USER_ID, f.EVENT_ID " +
+                "FROM FRIENDSHIP AS fr " +
+                "JOIN USERS AS u ON u.USER_ID = fr.FRIEND_ID " +
+                "CROSS JOIN (" +
+                "SELECT EVENT_ID " +
+                "FROM FEED " +
+                "WHERE USER_ID = ? " +
+                "ORDER BY EVENT_ID DESC " +
+                "LIMIT ?" +
+                ") AS f " +
+                "WHERE fr.USER_ID = ? " +
+                "AND fr.FRIEND_ID = ? " +
+                "AND u.FOLLOWERS_COUNT <= ?";
+        jdbcTemplate.update(sqlQuery, friendId, limit, userId, friendId, celebrityThreshold);
+    }
+
+    @Override
+    public void removeFriendEvents(int userId, int friendId) {
+        final String sqlQuery = "DELETE FROM TIMELINE " +
+                "WHERE USER_ID = ? " +
+                "AND EVENT_ID IN (" +
+                "SELECT EVENT_ID " +
+                "FROM FEED " +
+                "WHERE USER_ID = ?" +
+                ")";
+        jdbcTemplate.update(sqlQuery, userId, friendId);
+    }
+
+    @Override
+    public int trim(int maxSize) {
+        final String sqlQuery = "DELETE FROM TIMELINE AS t " +
+                "WHERE t.EVENT_ID <= (" +
+                "SELECT l.EVENT_ID " +
+                "FROM TIMELINE AS l " +
+                "WHERE l.USER_ID = t.USER_ID " +
+                "ORDER BY l.EVENT_ID DESC " +
+                "LIMIT 1 OFFSET ?" +
+                ")";
+        return jdbcTemplate.update(sqlQuery, maxSize);
+    }
+
+    private Feed makeFeed(ResultSet resultSet, int rowNum) throws SQLException {
+        return Feed.builder()
+                .eventId(resultSet.getLong("EVENT_ID"))
+                .entityId(resultSet.getInt("ENTITY_ID"))
+                .userId(resultSet.getInt("USER_ID"))
+                .timestamp(resultSet.getLong("timestamp"))
+                .eventType(EventType.valueOf(resultSet.getString("EVENT_TYPE")))
+                .operation(Operation.valueOf(resultSet.getString("OPERATION")))
+                .build();
+    }
+}
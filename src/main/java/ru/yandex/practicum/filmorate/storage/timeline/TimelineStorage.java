@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.storage.timeline;
+
+import ru.yandex.practicum.filmorate.model.Feed;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface TimelineStorage {
+    void fanOut(Collection<Long> eventIds, int celebrityThreshold);
+    List<Feed> findByUserId(int userId, long beforeEventId, int limit, int celebrityThreshold);
+    void backfill(int userId, int friendId, int limit, int celebrityThreshold);
+    void removeFriendEvents(int userId, int friendId);
+    int trim(int maxSize);
+}
@@ -7,8 +7,8 @@ import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
 
@@ -16,8 +16,13 @@ import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 @Component
 @Slf4j
@@ -47,7 +52,9 @@ public class DbUserStorage implements UserStorage{
 
     @Override
     public User updateUser(User user) {
-        getUser(user.getId());
+        if (!existsUser(user.getId())) {
+            throw new NotFoundException("Пользователя с таким id не существует.");
+        }
 
         final String sqlQuery = "UPDATE USERS " +
                 "SET EMAIL = ?, LOGIN = ?, NAME = ?, BIRTHDAY = ? " +
@@ -76,7 +83,59 @@ public class DbUserStorage implements UserStorage{
     }
 
     @Override
+    public boolean existsUser(int userId) {
+        final String sqlQuery = "SELECT EXISTS (" +
+                "SELECT 1 " +
+                "FROM USERS " +
+                "WHERE USER_ID = ?" +
+            ")";
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sqlQuery, Boolean.class, userId));
+    }
+
+    @Override
+    public Set<Integer> findExistingUserIds(Collection<Integer> userIds) {
+        if (userIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        final String sqlQuery = "SELECT USER_ID " +
+                "FROM USERS " +
+                "WHERE USER_ID IN (" + String.join(", ", Collections.nCopies(userIds.size(), "?")) + ")";
+        return new HashSet<>(jdbcTemplate.queryForList(sqlQuery, Integer.class, userIds.toArray()));
+    }
+
+    @Override
+    @Transactional
     public Boolean deleteUser(int id) {
+        final String sqlRateQuery = "UPDATE FILMS " +
+                "SET RATE = RATE - 1 " +
+                "WHERE FILM_ID IN (" +
+                    "SELECT FILM_ID " +
+                    "FROM LIKES " +
+                    "WHERE USER_ID = ?" +
+                ")";
+        jdbcTemplate.update(sqlRateQuery, id);
+        final String sqlFollowersQuery = "UPDATE USERS " +
+                "SET FOLLOWERS_COUNT = FOLLOWERS_COUNT - 1 " +
+                "WHERE USER_ID IN (" +
+                    "SELECT FRIEND_ID " +
+                    "FROM FRIENDSHIP " +
+                    "WHERE USER_ID = ?" +
+                ")";
+        jdbcTemplate.update(sqlFollowersQuery, id);
+        // Оценки пользователя удаляются каскадно, поэтому их вклад в полезность отзывов снимается заранее.
+        final String sqlUsefulQuery = "UPDATE REVIEWS AS r " +
+                "SET USEFUL = USEFUL - (" +
+                    "SELECT v.VOTE " +
+                    "FROM REVIEW_VOTES AS v " +
+                    "WHERE v.REVIEW_ID = r.REVIEW_ID " +
+                    "AND v.USER_ID = ?" +
+                ") " +
+                "WHERE REVIEW_ID IN (" +
+                    "SELECT REVIEW_ID " +
+                    "FROM REVIEW_VOTES " +
+                    "WHERE USER_ID = ?" +
+                ")";
+        jdbcTemplate.update(sqlUsefulQuery, id, id);
         final String sqlQuery = "DELETE FROM USERS " +
                 "WHERE USER_ID = ?";
         jdbcTemplate.update(sqlQuery, id);
@@ -91,11 +150,35 @@ public class DbUserStorage implements UserStorage{
     }
 
     @Override
+    public List<User> getUsers(int afterId, int limit) {
+        final String sqlQuery = "SELECT * " +
+                "FROM USERS " +
+                "WHERE USER_ID > ? " +
+                "ORDER BY USER_ID " +
+                "LIMIT ?";
+        return jdbcTemplate.query(sqlQuery, this::makeUser, afterId, limit);
+    }
+
+    @Override
+    public List<User> getUsersByIds(Collection<Integer> userIds) {
+        if (userIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        final String sqlQuery = "SELECT * " +
+                "FROM USERS " +
+                "WHERE USER_ID IN (" + String.join(", ", Collections.nCopies(userIds.size(), "?")) + ") " +
+                "ORDER BY USER_ID";
+        return jdbcTemplate.query(sqlQuery, this::makeUser, userIds.toArray());
+    }
+
+    @Override
+    @Transactional
     public Boolean addFriend(int userId, int friendId) {
         try {
             final String sqlQuery = "INSERT INTO FRIENDSHIP (USER_ID, FRIEND_ID) " +
                     "VALUES (?, ?)";
             jdbcTemplate.update(sqlQuery, userId, friendId);
+            changeFollowersCount(friendId, 1);
             return true;
         } catch (DataIntegrityViolationException exception) {
             throw new NotFoundException("Пользователя с таким id не существует.");
@@ -103,20 +186,43 @@ public class DbUserStorage implements UserStorage{
     }
 
     @Override
+    @Transactional
     public Boolean removeFriend(int userId, int friendId) {
         final String sqlQuery = "DELETE FROM FRIENDSHIP " +
                 "WHERE USER_ID = ? " +
                 "AND FRIEND_ID = ?";
-        jdbcTemplate.update(sqlQuery, userId, friendId);
+        if (jdbcTemplate.update(sqlQuery, userId, friendId) > 0) {
+            changeFollowersCount(friendId, -1);
+        }
         return true;
     }
 
     @Override
-    public List<User> getUserFriends(int userId) {
+    public int repairFollowersCount() {
+        final String sqlQuery = "UPDATE USERS AS u " +
+                "SET FOLLOWERS_COUNT = (" +
+                "SELECT COUNT(fr.USER_ID) " +
+                "FROM FRIENDSHIP AS fr " +
+                "WHERE fr.FRIEND_ID = u.USER_ID" +
+                ") " +
+                "WHERE FOLLOWERS_COUNT <> (" +
+                "SELECT COUNT(fr.USER_ID) " +
+                "FROM FRIENDSHIP AS fr " +
+                "WHERE fr.FRIEND_ID = u.USER_ID" +
+                ")";
+        return jdbcTemplate.update(sqlQuery);
+    }
+
+    private void changeFollowersCount(int userId, int delta) {
+        final String sqlQuery = "UPDATE USERS " +
+                "SET FOLLOWERS_COUNT = FOLLOWERS_COUNT + ? " +
+                "WHERE USER_ID = ?";
+        jdbcTemplate.update(sqlQuery, delta, userId);
+    }
 
-        String checkQuery = "SELECT * FROM USERS WHERE USER_ID = ?";
-        SqlRowSet filmRows = jdbcTemplate.queryForRowSet(checkQuery, userId);
-        if (!filmRows.next()) {
+    @Override
+    public List<User> getUserFriends(int userId) {
+        if (!existsUser(userId)) {
             log.warn("Пользователь с идентификатором {} не найден.", userId);
             throw new NotFoundException("Пользователь не найден");
         }
@@ -2,16 +2,23 @@ package ru.yandex.practicum.filmorate.storage.user;
 
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 public interface UserStorage {
     User createUser(User user);
     User updateUser(User user);
     User getUser(int userId);
+    boolean existsUser(int userId);
+    Set<Integer> findExistingUserIds(Collection<Integer> userIds);
     Boolean deleteUser(int id);
     List<User> getAllUsers();
+    List<User> getUsers(int afterId, int limit);
+    List<User> getUsersByIds(Collection<Integer> userIds);
     Boolean addFriend(int userId, int friendId);
     Boolean removeFriend(int userId, int friendId);
+    int repairFollowersCount();
     List<User> getUserFriends(int userId);
     List<User> getUserCommonFriends(int userId, int friendId);
 }
@@ -10,7 +10,10 @@ DROP TABLE IF EXISTS FRIENDSHIP CASCADE;
 DROP TABLE IF EXISTS REVIEWS CASCADE;
 DROP TABLE IF EXISTS DISLIKE_REVIEWS CASCADE;
 DROP TABLE IF EXISTS LIKES_REVIEWS CASCADE;
+DROP TABLE IF EXISTS REVIEW_VOTES CASCADE;
 DROP TABLE IF EXISTS FEED CASCADE;
+DROP TABLE IF EXISTS USER_RECOMMENDATIONS CASCADE;
+DROP TABLE IF EXISTS TIMELINE CASCADE;
 
 CREATE TABLE IF NOT EXISTS MPA
 (
@@ -26,9 +29,12 @@ CREATE TABLE IF NOT EXISTS FILMS
     DESCRIPTION  VARCHAR(200),
     RELEASE_DATE DATE,
     DURATION     INTEGER,
-    MPA_ID       INTEGER REFERENCES MPA (MPA_ID)
+    MPA_ID       INTEGER REFERENCES MPA (MPA_ID),
+    RATE         INTEGER DEFAULT 0 NOT NULL
 );
 
+CREATE INDEX IF NOT EXISTS FILMS_RATE_IDX ON FILMS (RATE DESC, FILM_ID);
+
 CREATE TABLE IF NOT EXISTS GENRES
 (
     GENRE_ID INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -57,11 +63,12 @@ CREATE TABLE IF NOT EXISTS FILMS_DIRECTORS
 
 CREATE TABLE IF NOT EXISTS USERS
 (
-    USER_ID  INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-    EMAIL    VARCHAR(50) NOT NULL,
-    LOGIN    VARCHAR(50) NOT NULL,
-    NAME     VARCHAR(50),
-    BIRTHDAY DATE
+    USER_ID         INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    EMAIL           VARCHAR(50) NOT NULL,
+    LOGIN           VARCHAR(50) NOT NULL,
+    NAME            VARCHAR(50),
+    BIRTHDAY        DATE,
+    FOLLOWERS_COUNT INTEGER DEFAULT 0 NOT NULL
 );
 
 CREATE TABLE IF NOT EXISTS LIKES
@@ -78,6 +85,8 @@ CREATE TABLE IF NOT EXISTS FRIENDSHIP
     PRIMARY KEY (USER_ID, FRIEND_ID)
 );
 
+CREATE INDEX IF NOT EXISTS FRIENDSHIP_FRIEND_ID_IDX ON FRIENDSHIP (FRIEND_ID);
+
 CREATE TABLE IF NOT EXISTS REVIEWS
 (
     REVIEW_ID   INTEGER auto_increment
@@ -87,29 +96,25 @@ CREATE TABLE IF NOT EXISTS REVIEWS
     IS_POSITIVE BOOLEAN,
     USER_ID     INTEGER,
     FILM_ID     INTEGER,
+    USEFUL      INTEGER DEFAULT 0 NOT NULL,
     constraint REVIEWS_FILMS_FILM_ID_FK
         foreign key (FILM_ID) references FILMS ON DELETE CASCADE,
     constraint REVIEWS_USERS_USER_ID_FK
         foreign key (USER_ID) references USERS ON DELETE CASCADE
 );
 
-CREATE TABLE IF NOT EXISTS DISLIKE_REVIEWS
-(
-    REVIEW_ID INTEGER,
-    USER_ID   INTEGER,
-    constraint DISLIKE_REVIEWS_REVIEWS_ID_FK
-        foreign key (REVIEW_ID) references REVIEWS ON DELETE CASCADE,
-    constraint DISLIKE_REVIEWS_USERS_USER_ID_FK
-        foreign key (USER_ID) references USERS ON DELETE CASCADE
-);
+CREATE INDEX IF NOT EXISTS REVIEWS_FILM_ID_USEFUL_IDX ON REVIEWS (FILM_ID, USEFUL DESC, REVIEW_ID);
+CREATE INDEX IF NOT EXISTS REVIEWS_USEFUL_IDX ON REVIEWS (USEFUL DESC, REVIEW_ID);
 
-CREATE TABLE IF NOT EXISTS LIKES_REVIEWS
+CREATE TABLE IF NOT EXISTS REVIEW_VOTES
 (
-    REVIEW_ID INTEGER,
-    USER_ID   INTEGER,
-    constraint LIKES_REVIEWS_REVIEWS_ID_FK
+    REVIEW_ID INTEGER NOT NULL,
+    USER_ID   INTEGER NOT NULL,
+    VOTE      SMALLINT NOT NULL CHECK (VOTE IN (-1, 1)),
+    PRIMARY KEY (REVIEW_ID, USER_ID),
+    constraint REVIEW_VOTES_REVIEWS_ID_FK
         foreign key (REVIEW_ID) references REVIEWS ON DELETE CASCADE,
-    constraint LIKES_REVIEWS_USERS_USER_ID_FK
+    constraint REVIEW_VOTES_USERS_USER_ID_FK
         foreign key (USER_ID) references USERS ON DELETE CASCADE
 );
 
@@ -121,4 +126,21 @@ CREATE TABLE IF NOT EXISTS FEED
     timestamp  BIGINT,
     EVENT_TYPE VARCHAR,
     OPERATION  VARCHAR
-    );
\ No newline at end of file
+    );
+
+CREATE INDEX IF NOT EXISTS FEED_USER_ID_EVENT_ID_IDX ON FEED (USER_ID, EVENT_ID);
+
+CREATE TABLE IF NOT EXISTS USER_RECOMMENDATIONS
+(
+    USER_ID    INTEGER REFERENCES USERS (USER_ID) ON DELETE CASCADE,
+    SORT_ORDER INTEGER,
+    FILM_ID    INTEGER REFERENCES FILMS (FILM_ID) ON DELETE CASCADE,
+    PRIMARY KEY (USER_ID, SORT_ORDER)
+);
+
+CREATE TABLE IF NOT EXISTS TIMELINE
+(
+    USER_ID  INTEGER REFERENCES USERS (USER_ID) ON DELETE CASCADE,
+    EVENT_ID INTEGER REFERENCES FEED (EVENT_ID) ON DELETE CASCADE,
+    PRIMARY KEY (USER_ID, EVENT_ID)
+);
\ No newline at end of file
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.enums.EventType;
+import ru.yandex.practicum.filmorate.enums.Operation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.feed.FeedStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class FeedStreamTests {
+
+    private final FeedStorage feedStorage;
+    private final UserStorage userStorage;
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    public void shouldReplayMissedEventsAndPushNewOnes() throws IOException {
+        User user = User.builder()
+                .email("email@email.ru")
+                .login("login")
+                .name("name")
+                .birthday(LocalDate.now().minusYears(100))
+                .build();
+        userStorage.createUser(user);
+
+        long timestamp = Instant.now().toEpochMilli();
+        feedStorage.addFeed(1, 1, timestamp, EventType.LIKE, Operation.ADD);
+        feedStorage.addFeed(2, 1, timestamp, EventType.LIKE, Operation.ADD);
+        long lastEventId = feedStorage.findByUserId(1, 0, 1).get(0).getEventId();
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(
+                "http://localhost:" + port + "/users/1/feed/stream").openConnection();
+        connection.setRequestProperty("Accept", "text/event-stream");
+        connection.setRequestProperty("Last-Event-ID", String.valueOf(lastEventId));
+        connection.setReadTimeout(5000);
+
+        List<String> ids = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while (ids.size() < 2 && (line = reader.readLine()) != null) {
+                if (line.startsWith("id:")) {
+                    ids.add(line.substring(3));
+                    if (ids.size() == 1) {
+                        feedStorage.addFeed(3, 1, timestamp, EventType.LIKE, Operation.REMOVE);
+                    }
+                }
+            }
+        } finally {
+            connection.disconnect();
+        }
+
+        assertEquals(List.of(String.valueOf(lastEventId + 1), String.valueOf(lastEventId + 2)), ids);
+    }
+}
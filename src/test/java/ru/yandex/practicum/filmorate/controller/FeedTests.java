@@ -8,20 +8,34 @@ import org.junit.jupiter.api.TestMethodOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.annotation.DirtiesContext;
 import ru.yandex.practicum.filmorate.model.Feed;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.enums.EventType;
 import ru.yandex.practicum.filmorate.enums.Operation;
+import ru.yandex.practicum.filmorate.service.FeedCompactionService;
 import ru.yandex.practicum.filmorate.storage.feed.FeedStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
-@SpringBootTest
+@SpringBootTest(properties = "filmorate.feed.archive-dir=target/feed-archive")
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
@@ -30,6 +44,8 @@ public class FeedTests {
 
     private final FeedStorage feedStorage;
     private final UserStorage userStorage;
+    private final FeedCompactionService feedCompactionService;
+    private final UserController userController;
 
     @Test
     @Order(1)
@@ -76,4 +92,119 @@ public class FeedTests {
 
         assertTrue(feedStorage.findByUserId(2).isEmpty());
     }
+
+    @Test
+    @Order(3)
+    public void testAddFeedsSkipsEventsOfMissingUsers() {
+        User user = User.builder()
+                .email("email3@email.ru")
+                .login("login3")
+                .name("name3")
+                .birthday(LocalDate.now().minusYears(100))
+                .build();
+        userStorage.createUser(user);
+
+        long timestamp = Instant.now().toEpochMilli();
+        feedStorage.addFeed(1, 1, timestamp, EventType.LIKE, Operation.ADD);
+        feedStorage.addFeed(2, 999, timestamp, EventType.LIKE, Operation.ADD);
+        feedStorage.addFeed(1, 1, timestamp, EventType.LIKE, Operation.REMOVE);
+
+        List<Feed> feeds = feedStorage.findByUserId(1);
+
+        assertEquals(2, feeds.size());
+        assertEquals(Operation.ADD, feeds.get(0).getOperation());
+        assertEquals(Operation.REMOVE, feeds.get(1).getOperation());
+    }
+
+    @Test
+    @Order(4)
+    public void testGetFeedByUserIdByPages() {
+        User user = User.builder()
+                .email("email4@email.ru")
+                .login("login4")
+                .name("name4")
+                .birthday(LocalDate.now().minusYears(100))
+                .build();
+        userStorage.createUser(user);
+
+        long timestamp = Instant.now().toEpochMilli();
+        for (int i = 1; i <= 5; i++) {
+            feedStorage.addFeed(i, 1, timestamp, EventType.LIKE, Operation.ADD);
+        }
+
+        List<Feed> firstPage = feedStorage.findByUserId(1, 0, 2);
+        List<Feed> secondPage = feedStorage.findByUserId(1, firstPage.get(1).getEventId(), 2);
+        List<Feed> lastPage = feedStorage.findByUserId(1, secondPage.get(1).getEventId(), 2);
+
+        assertEquals(2, firstPage.size());
+        assertEquals(1, firstPage.get(0).getEntityId());
+        assertEquals(2, secondPage.size());
+        assertEquals(3, secondPage.get(0).getEntityId());
+        assertEquals(1, lastPage.size());
+        assertEquals(5, lastPage.get(0).getEntityId());
+    }
+
+    @Test
+    @Order(5)
+    public void testCompactAndArchiveOldFeeds() throws IOException {
+        Path archive = Paths.get("target/feed-archive/feed-1970-01-02.ndjson.gz");
+        Files.deleteIfExists(archive);
+        User user = User.builder()
+                .email("email5@email.ru")
+                .login("login5")
+                .name("name5")
+                .birthday(LocalDate.now().minusYears(100))
+                .build();
+        userStorage.createUser(user);
+
+        long day = 24 * 60 * 60 * 1000L;
+        feedStorage.addFeed(1, 1, day, EventType.LIKE, Operation.ADD);
+        feedStorage.addFeed(2, 1, day, EventType.LIKE, Operation.ADD);
+        feedStorage.addFeed(1, 1, day, EventType.LIKE, Operation.REMOVE);
+        feedStorage.addFeed(3, 1, day, EventType.REVIEW, Operation.ADD);
+        feedStorage.addFeed(3, 1, day, EventType.REVIEW, Operation.REMOVE);
+        feedStorage.addFeed(4, 1, Instant.now().toEpochMilli(), EventType.LIKE, Operation.ADD);
+
+        assertEquals(2, feedCompactionService.compact(2 * day));
+        assertEquals(4, feedStorage.findByUserId(1).size());
+
+        assertEquals(3, feedCompactionService.archive(2 * day));
+
+        List<Feed> feeds = feedStorage.findByUserId(1);
+
+        assertEquals(1, feeds.size());
+        assertEquals(4, feeds.get(0).getEntityId());
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(archive)), StandardCharsets.UTF_8))) {
+            List<String> lines = reader.lines().collect(Collectors.toList());
+            assertEquals(3, lines.size());
+            assertTrue(lines.get(0).contains("\"entityId\":2"));
+        }
+    }
+
+    @Test
+    @Order(6)
+    public void testGetWholeFeedWithoutPageParameters() {
+        User user = User.builder()
+                .email("email6@email.ru")
+                .login("login6")
+                .name("name6")
+                .birthday(LocalDate.now().minusYears(100))
+                .build();
+        userStorage.createUser(user);
+
+        long timestamp = Instant.now().toEpochMilli();
+        for (int i = 1; i <= 150; i++) {
+            feedStorage.addFeed(i, 1, timestamp, EventType.LIKE, Operation.ADD);
+        }
+
+        ResponseEntity<List<Feed>> whole = userController.getFeed(1, null, null);
+        ResponseEntity<List<Feed>> page = userController.getFeed(1, null, 100);
+
+        assertEquals(150, whole.getBody().size());
+        assertNull(whole.getHeaders().getFirst("X-Next-Cursor"));
+        assertEquals(100, page.getBody().size());
+        assertEquals(String.valueOf(page.getBody().get(99).getEventId()), page.getHeaders().getFirst("X-Next-Cursor"));
+    }
 }
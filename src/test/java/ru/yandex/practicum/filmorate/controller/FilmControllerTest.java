@@ -5,23 +5,36 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.enums.Operation;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmPage;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperationResult;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.storage.director.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.film.CachedFilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -33,6 +46,9 @@ public class FilmControllerTest {
     private final FilmController filmController;
     private final UserStorage userStorage;
     private final DirectorStorage directorStorage;
+    private final DirectorController directorController;
+    private final CachedFilmStorage cachedFilmStorage;
+    private final ReviewsController reviewsController;
 
     @Test
     public void shouldAddFilmWithValidFields() {
@@ -53,7 +69,7 @@ public class FilmControllerTest {
         film.getDirectors().add(directorStorage.getDirector(1));
         filmController.createFilm(film);
 
-        List<Film> filmsFromController = new ArrayList<>(filmController.getAllFilms());
+        List<Film> filmsFromController = new ArrayList<>(filmController.getAllFilms(0, 100, false).getBody());
 
         assertEquals(filmsFromController.size(), 1);
 
@@ -95,7 +111,7 @@ public class FilmControllerTest {
         ValidationException exception = assertThrows(ValidationException.class, () -> filmController.createFilm(film));
         assertEquals("Дата релиза фильма не может быть раньше " + FilmService.FIRST_FILM_RELEASE_DATE,
                 exception.getMessage());
-        assertEquals(filmController.getAllFilms().size(), 0);
+        assertEquals(filmController.getAllFilms(0, 100, false).getBody().size(), 0);
     }
 
     @Test
@@ -179,7 +195,7 @@ public class FilmControllerTest {
         updatedFilm.getDirectors().add(directorStorage.getDirector(2));
         filmController.updateFilm(updatedFilm);
 
-        List<Film> filmsFromController = new ArrayList<>(filmController.getAllFilms());
+        List<Film> filmsFromController = new ArrayList<>(filmController.getAllFilms(0, 100, false).getBody());
 
         assertEquals(filmsFromController.size(), 1);
 
@@ -249,7 +265,7 @@ public class FilmControllerTest {
         NotFoundException exception = assertThrows(NotFoundException.class, () -> filmController.updateFilm(updatedFilm));
         assertEquals("Фильма с таким id не существует.", exception.getMessage());
 
-        List<Film> filmsFromController = new ArrayList<>(filmController.getAllFilms());
+        List<Film> filmsFromController = new ArrayList<>(filmController.getAllFilms(0, 100, false).getBody());
 
         assertEquals(filmsFromController.size(), 1);
 
@@ -311,7 +327,7 @@ public class FilmControllerTest {
                 .build());
         film2.getDirectors().add(directorStorage.getDirector(2));
         filmController.createFilm(film2);
-        List<Film> filmsFromController = filmController.getAllFilms();
+        List<Film> filmsFromController = filmController.getAllFilms(0, 100, false).getBody();
 
         assertEquals(filmsFromController.size(), 2);
 
@@ -351,9 +367,58 @@ public class FilmControllerTest {
                 new ArrayList<>(film2.getDirectors()).get(0).getName());
     }
 
+    @Test
+    public void shouldGetFilmsByPages() {
+        for (int i = 1; i <= 3; i++) {
+            filmController.createFilm(Film.builder()
+                    .name("test film name " + i)
+                    .description("description")
+                    .duration(100)
+                    .releaseDate(LocalDate.of(1967, 3, 25))
+                    .mpa(Mpa.builder().id(1).build())
+                    .build());
+        }
+
+        ResponseEntity<List<Film>> firstPage = filmController.getAllFilms(0, 2, false);
+        String cursor = firstPage.getHeaders().getFirst("X-Next-Cursor");
+        ResponseEntity<List<Film>> secondPage = filmController.getAllFilms(Integer.parseInt(cursor), 2, false);
+
+        assertEquals(firstPage.getBody().size(), 2);
+        assertEquals(cursor, "2");
+        assertEquals(secondPage.getBody().size(), 1);
+        assertEquals(secondPage.getBody().get(0).getId(), 3);
+        assertNull(secondPage.getHeaders().getFirst("X-Next-Cursor"));
+        assertEquals(filmController.getAllFilms(0, 2, true).getBody().size(), 3);
+    }
+
+    @Test
+    public void shouldExportFilmsAsNdjson() throws IOException {
+        for (int i = 1; i <= 3; i++) {
+            Film film = Film.builder()
+                    .name("test film name " + i)
+                    .description("description")
+                    .duration(100)
+                    .releaseDate(LocalDate.of(1967, 3, 25))
+                    .mpa(Mpa.builder().id(1).build())
+                    .build();
+            film.getGenres().add(Genre.builder()
+                    .id(i)
+                    .build());
+            filmController.createFilm(film);
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        filmController.exportFilms().writeTo(outputStream);
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+
+        assertEquals(lines.length, 3);
+        assertTrue(lines[0].startsWith("{\"id\":1,"));
+        assertTrue(lines[2].contains("\"genres\":[{\"id\":3,"));
+    }
+
     @Test
     public void shouldGetEmptyIfNoFilms() {
-        List<Film> filmsFromController = new ArrayList<>(filmController.getAllFilms());
+        List<Film> filmsFromController = new ArrayList<>(filmController.getAllFilms(0, 100, false).getBody());
 
         assertEquals(filmsFromController.size(), 0);
     }
@@ -395,6 +460,112 @@ public class FilmControllerTest {
                 new ArrayList<>(film.getDirectors()).get(0).getName());
     }
 
+    @Test
+    public void shouldGetFilmWithSeveralGenresAndDirectors() {
+        Film film = Film.builder()
+                .name("test film name")
+                .description("description")
+                .duration(100)
+                .releaseDate(LocalDate.of(1967, 3, 25))
+                .mpa(Mpa.builder().id(1).build())
+                .build();
+        for (int i = 1; i <= 6; i++) {
+            film.getGenres().add(Genre.builder()
+                    .id(i)
+                    .build());
+        }
+        for (int i = 1; i <= 3; i++) {
+            directorStorage.createDirector(Director.builder()
+                    .id(i)
+                    .name("director " + i)
+                    .build());
+            film.getDirectors().add(directorStorage.getDirector(i));
+        }
+        filmController.createFilm(film);
+
+        Film filmFromController = filmController.getFilmById(1);
+        List<Film> filmsByDirector = filmController.getFilmsByDirector(2, "likes");
+
+        assertEquals(filmFromController.getGenres().size(), 6);
+        assertEquals(filmFromController.getDirectors().size(), 3);
+        assertEquals(new ArrayList<>(filmFromController.getGenres()).get(5).getName(), "Боевик");
+        assertEquals(filmFromController.getMpa().getName(), "G");
+        assertEquals(filmsByDirector.size(), 1);
+        assertEquals(filmsByDirector.get(0).getGenres().size(), 6);
+        assertEquals(filmsByDirector.get(0).getDirectors().size(), 3);
+    }
+
+    @Test
+    public void shouldGetFilmFromCacheUntilDirectorUpdated() {
+        Film film = Film.builder()
+                .name("test film name")
+                .description("description")
+                .duration(100)
+                .releaseDate(LocalDate.of(1967, 3, 25))
+                .mpa(Mpa.builder().id(1).build())
+                .build();
+        directorStorage.createDirector(Director.builder()
+                .name("director")
+                .build());
+        film.getDirectors().add(directorStorage.getDirector(1));
+        filmController.createFilm(film);
+
+        filmController.getFilmById(1);
+        filmController.getFilmById(1);
+
+        assertEquals(cachedFilmStorage.getHits(), 2);
+        assertEquals(cachedFilmStorage.getMisses(), 0);
+
+        directorController.updateDirector(Director.builder()
+                .id(1)
+                .name("new director")
+                .build());
+        Film filmFromController = filmController.getFilmById(1);
+
+        assertEquals(cachedFilmStorage.getMisses(), 1);
+        assertEquals(new ArrayList<>(filmFromController.getDirectors()).get(0).getName(), "new director");
+    }
+
+    @Test
+    public void shouldNotShareCachedFilmInstances() {
+        filmController.createFilm(Film.builder()
+                .name("test film name")
+                .description("description")
+                .duration(100)
+                .releaseDate(LocalDate.of(1967, 3, 25))
+                .mpa(Mpa.builder().id(1).build())
+                .build());
+
+        filmController.getFilmById(1).setName("changed by client");
+
+        assertEquals("test film name", filmController.getFilmById(1).getName());
+        assertEquals(0, cachedFilmStorage.getMisses());
+    }
+
+    @Test
+    public void shouldCheckLikedFilmThroughCache() {
+        filmController.createFilm(Film.builder()
+                .name("test film name")
+                .description("description")
+                .duration(100)
+                .releaseDate(LocalDate.of(1967, 3, 25))
+                .mpa(Mpa.builder().id(1).build())
+                .build());
+        userStorage.createUser(User.builder()
+                .email("tester@yandex.ru")
+                .name("Test name")
+                .login("ValidTestLogin")
+                .birthday(LocalDate.of(1964, 6, 11))
+                .build());
+
+        filmController.addLike(1, 1);
+        assertEquals(1, cachedFilmStorage.getHits());
+
+        filmController.removeLike(1, 1);
+        assertEquals(2, cachedFilmStorage.getHits());
+        assertEquals(0, cachedFilmStorage.getMisses());
+    }
+
     @Test
     public void shouldThrowExceptionIfFilmIdNotFound() {
         NotFoundException exception = assertThrows(NotFoundException.class, () -> filmController.getFilmById(999));
@@ -945,6 +1116,64 @@ public class FilmControllerTest {
         assertEquals(filmController.getTopRatedFilms(10).size(), 0);
     }
 
+    @Test
+    public void shouldGetTopRatedFilmsWithEqualLikesSortById() {
+        for (int i = 1; i <= 3; i++) {
+            filmController.createFilm(Film.builder()
+                    .name("test film name " + i)
+                    .description("description")
+                    .duration(100)
+                    .releaseDate(LocalDate.of(1967, 3, 25))
+                    .mpa(Mpa.builder().id(1).build())
+                    .build());
+        }
+        User user = User.builder()
+                .email("tester@yandex.ru")
+                .name("Test name")
+                .login("ValidTestLogin")
+                .birthday(LocalDate.of(1964, 6, 11))
+                .build();
+        userStorage.createUser(user);
+        filmController.addLike(3, 1);
+
+        List<Film> filmsFromController = filmController.getTopRatedFilms(2);
+
+        assertEquals(filmsFromController.size(), 2);
+        assertEquals(filmsFromController.get(0).getId(), 3);
+        assertEquals(filmsFromController.get(1).getId(), 1);
+    }
+
+    @Test
+    public void shouldUpdateTopRatedFilmsAfterDeleteUser() {
+        for (int i = 1; i <= 2; i++) {
+            filmController.createFilm(Film.builder()
+                    .name("test film name " + i)
+                    .description("description")
+                    .duration(100)
+                    .releaseDate(LocalDate.of(1967, 3, 25))
+                    .mpa(Mpa.builder().id(1).build())
+                    .build());
+        }
+        for (int i = 1; i <= 3; i++) {
+            userStorage.createUser(User.builder()
+                    .email("tester" + i + "@yandex.ru")
+                    .name("Test name " + i)
+                    .login("ValidTestLogin" + i)
+                    .birthday(LocalDate.of(1964, 6, 11))
+                    .build());
+        }
+        filmController.addLike(1, 1);
+        filmController.addLike(1, 2);
+        filmController.addLike(2, 3);
+
+        assertEquals(filmController.getTopRatedFilms(1).get(0).getId(), 1);
+
+        userStorage.deleteUser(1);
+        userStorage.deleteUser(2);
+
+        assertEquals(filmController.getTopRatedFilms(1).get(0).getId(), 2);
+    }
+
     @Test
     public void shouldGetFilmsByDirectorSortByLikes() {
         Film film1 = Film.builder()
@@ -1247,6 +1476,13 @@ public class FilmControllerTest {
                 new ArrayList<>(film4.getDirectors()).get(0).getName());
     }
 
+    @Test
+    public void shouldThrowExceptionIfGetFilmsByDirectorNotFound() {
+        NotFoundException exception = assertThrows(NotFoundException.class,
+                () -> filmController.getFilmsByDirector(999, "year"));
+        assertEquals("Режиссера с таким id не существует.", exception.getMessage());
+    }
+
     @Test
     public void shouldThrowExceptionIfGetFilmsByDirectorSortByUnknown() {
         Film film1 = Film.builder()
@@ -1323,7 +1559,7 @@ public class FilmControllerTest {
         film3.getDirectors().add(directorStorage.getDirector(2));
         filmController.createFilm(film3);
 
-        List<Film> filmsFromController = filmController.getAllFilms();
+        List<Film> filmsFromController = filmController.getAllFilms(0, 100, false).getBody();
 
         assertEquals(filmsFromController.size(), 3);
         assertEquals(filmsFromController.get(0).getId(), film1.getId());
@@ -1332,7 +1568,7 @@ public class FilmControllerTest {
 
         filmController.deleteFilm(2);
 
-        filmsFromController = filmController.getAllFilms();
+        filmsFromController = filmController.getAllFilms(0, 100, false).getBody();
 
         assertEquals(filmsFromController.size(), 2);
 
@@ -1372,12 +1608,12 @@ public class FilmControllerTest {
 
     @Test
     public void shouldDeleteFilmNotFound() {
-        List<Film> filmsFromController = filmController.getAllFilms();
+        List<Film> filmsFromController = filmController.getAllFilms(0, 100, false).getBody();
 
         assertEquals(filmsFromController.size(), 0);
 
         filmController.deleteFilm(999);
-        filmsFromController = filmController.getAllFilms();
+        filmsFromController = filmController.getAllFilms(0, 100, false).getBody();
 
         assertEquals(filmsFromController.size(), 0);
     }
@@ -1428,9 +1664,9 @@ public class FilmControllerTest {
         String query3 = "palma";
         String by3 = "director,title";
 
-       List<Film> filmsFromController = filmController.searchFilms(query1, by1);
-       List<Film> filmsFromController1 = filmController.searchFilms(query2, by2);
-       List<Film> filmsFromController2 = filmController.searchFilms(query3, by3);
+       List<Film> filmsFromController = filmController.searchFilms(query1, by1, 100, 0);
+       List<Film> filmsFromController1 = filmController.searchFilms(query2, by2, 100, 0);
+       List<Film> filmsFromController2 = filmController.searchFilms(query3, by3, 100, 0);
 
         assertEquals(1, filmsFromController.size());
         assertEquals(1, filmsFromController1.size());
@@ -1440,4 +1676,256 @@ public class FilmControllerTest {
         assertEquals(film0.getName(), filmsFromController1.get(0).getName());
         assertEquals(new ArrayList<>(film1.getDirectors()).get(0).getName(), new ArrayList<>(filmsFromController2.get(0).getDirectors()).get(0).getName());
     }
+
+    @Test
+    public void shouldUpdateLikesInBatch() {
+        for (int i = 1; i <= 2; i++) {
+            filmController.createFilm(Film.builder()
+                    .name("test film name " + i)
+                    .description("description")
+                    .duration(100)
+                    .releaseDate(LocalDate.of(1967, 3, 25))
+                    .mpa(Mpa.builder().id(1).build())
+                    .build());
+        }
+        for (int i = 1; i <= 2; i++) {
+            userStorage.createUser(User.builder()
+                    .email("tester" + i + "@yandex.ru")
+                    .name("Test name " + i)
+                    .login("ValidTestLogin" + i)
+                    .birthday(LocalDate.of(1964, 6, 11))
+                    .build());
+        }
+        filmController.addLike(1, 1);
+
+        List<LikeOperationResult> results = filmController.updateLikes(List.of(
+                LikeOperation.builder().filmId(2).userId(1).operation(Operation.ADD).build(),
+                LikeOperation.builder().filmId(2).userId(2).operation(Operation.ADD).build(),
+                LikeOperation.builder().filmId(1).userId(1).operation(Operation.REMOVE).build(),
+                LikeOperation.builder().filmId(999).userId(1).operation(Operation.ADD).build(),
+                LikeOperation.builder().filmId(1).userId(999).operation(Operation.ADD).build(),
+                LikeOperation.builder().filmId(1).userId(2).operation(Operation.UPDATE).build()));
+
+        assertEquals(results.size(), 6);
+        assertTrue(results.get(0).isSuccess());
+        assertTrue(results.get(1).isSuccess());
+        assertTrue(results.get(2).isSuccess());
+        assertFalse(results.get(3).isSuccess());
+        assertEquals("Фильма с таким id не существует.", results.get(3).getError());
+        assertFalse(results.get(4).isSuccess());
+        assertEquals("Пользователя с таким id не существует.", results.get(4).getError());
+        assertFalse(results.get(5).isSuccess());
+        assertEquals("Некорректная операция с лайком.", results.get(5).getError());
+
+        List<Film> filmsFromController = filmController.getTopRatedFilms(2);
+
+        assertEquals(filmsFromController.get(0).getId(), 2);
+        assertEquals(filmsFromController.get(1).getId(), 1);
+    }
+
+    @Test
+    public void shouldSearchFilmsBySubstringAfterUpdates() {
+        directorController.createDirector(Director.builder()
+                .id(1)
+                .name("Quentin Tarantino")
+                .build());
+        Film film1 = Film.builder()
+                .name("Pulp Fiction")
+                .description("description")
+                .duration(100)
+                .releaseDate(LocalDate.of(1994, 5, 21))
+                .mpa(Mpa.builder().id(1).build())
+                .build();
+        film1.getDirectors().add(Director.builder().id(1).build());
+        filmController.createFilm(film1);
+        filmController.createFilm(Film.builder()
+                .name("Up")
+                .description("description")
+                .duration(100)
+                .releaseDate(LocalDate.of(2009, 5, 13))
+                .mpa(Mpa.builder().id(1).build())
+                .build());
+
+        assertEquals(filmController.searchFilms("TARANT", "director", 100, 0).get(0).getId(), 1);
+        assertEquals(filmController.searchFilms("up", "title", 100, 0).size(), 1);
+        assertEquals(filmController.searchFilms("p", "title,director", 100, 0).size(), 2);
+        assertEquals(filmController.searchFilms("ion", "director", 100, 0).size(), 0);
+
+        directorController.updateDirector(Director.builder()
+                .id(1)
+                .name("Another Name")
+                .build());
+        filmController.updateFilm(Film.builder()
+                .id(2)
+                .name("Fiction 2")
+                .description("description")
+                .duration(100)
+                .releaseDate(LocalDate.of(2009, 5, 13))
+                .mpa(Mpa.builder().id(1).build())
+                .build());
+
+        assertEquals(filmController.searchFilms("tarant", "director", 100, 0).size(), 0);
+        assertEquals(filmController.searchFilms("another", "director", 100, 0).get(0).getId(), 1);
+        assertEquals(filmController.searchFilms("fiction", "title", 100, 0).size(), 2);
+
+        filmController.deleteFilm(1);
+
+        assertEquals(filmController.searchFilms("fiction", "title,director", 100, 0).get(0).getId(), 2);
+        assertEquals(filmController.searchFilms("fiction", "title,director", 100, 0).size(), 1);
+    }
+
+    @Test
+    public void shouldSearchFilmsWithTypos() {
+        directorController.createDirector(Director.builder()
+                .id(1)
+                .name("Quentin Tarantino")
+                .build());
+        Film film1 = Film.builder()
+                .name("The Godfather")
+                .description("description")
+                .duration(175)
+                .releaseDate(LocalDate.of(1972, 3, 15))
+                .mpa(Mpa.builder().id(4).build())
+                .build();
+        filmController.createFilm(film1);
+        Film film2 = Film.builder()
+                .name("Pulp Fiction")
+                .description("description")
+                .duration(154)
+                .releaseDate(LocalDate.of(1994, 5, 21))
+                .mpa(Mpa.builder().id(4).build())
+                .build();
+        film2.getDirectors().add(Director.builder().id(1).build());
+        filmController.createFilm(film2);
+
+        assertEquals(filmController.searchFilms("godfater", "title", 100, 0).get(0).getId(), 1);
+        assertEquals(filmController.searchFilms("Tarantinno", "director", 100, 0).get(0).getId(), 2);
+        assertEquals(filmController.searchFilms("Tarantinno", "title", 100, 0).size(), 0);
+        assertEquals(filmController.searchFilms("pulp fictoin", "title,director", 100, 0).get(0).getId(), 2);
+        assertEquals(filmController.searchFilms("не найти", "title,director", 100, 0).size(), 0);
+    }
+
+    @Test
+    public void shouldRankSearchResultsByLikesAndRelevance() {
+        String[] names = {"Superstar", "Star Wars", "Star", "Lone Star"};
+        for (String name : names) {
+            filmController.createFilm(Film.builder()
+                    .name(name)
+                    .description("description")
+                    .duration(100)
+                    .releaseDate(LocalDate.of(1977, 5, 25))
+                    .mpa(Mpa.builder().id(1).build())
+                    .build());
+        }
+        userStorage.createUser(User.builder()
+                .email("tester@yandex.ru")
+                .name("Test name")
+                .login("ValidTestLogin")
+                .birthday(LocalDate.of(1964, 6, 11))
+                .build());
+        filmController.addLike(1, 1);
+        filmController.addLike(4, 1);
+
+        List<Film> filmsFromController = filmController.searchFilms("star", "title", 100, 0);
+
+        assertEquals(filmsFromController.size(), 4);
+        assertEquals(filmsFromController.get(0).getId(), 3);
+        assertEquals(filmsFromController.get(1).getId(), 4);
+        assertEquals(filmsFromController.get(2).getId(), 2);
+        assertEquals(filmsFromController.get(3).getId(), 1);
+
+        filmsFromController = filmController.searchFilms("star", "title", 2, 1);
+
+        assertEquals(filmsFromController.size(), 2);
+        assertEquals(filmsFromController.get(0).getId(), 4);
+        assertEquals(filmsFromController.get(1).getId(), 2);
+        assertEquals(filmController.searchFilms("star", "title", 2, 4).size(), 0);
+
+        ValidationException exception = assertThrows(ValidationException.class,
+                () -> filmController.searchFilms("star", "title", 100, -1));
+        assertEquals("Смещение не может быть отрицательным.", exception.getMessage());
+    }
+
+    @Test
+    public void shouldSuggestFilmsByPrefixOrderedByLikes() {
+        directorController.createDirector(Director.builder()
+                .id(1)
+                .name("Francis Ford Coppola")
+                .build());
+        Film film1 = Film.builder()
+                .name("The Godfather")
+                .description("description")
+                .duration(175)
+                .releaseDate(LocalDate.of(1972, 3, 15))
+                .mpa(Mpa.builder().id(4).build())
+                .build();
+        film1.getDirectors().add(Director.builder().id(1).build());
+        filmController.createFilm(film1);
+        filmController.createFilm(Film.builder()
+                .name("The Gold Rush")
+                .description("description")
+                .duration(95)
+                .releaseDate(LocalDate.of(1925, 6, 26))
+                .mpa(Mpa.builder().id(1).build())
+                .build());
+        userStorage.createUser(User.builder()
+                .email("tester@yandex.ru")
+                .name("Test name")
+                .login("ValidTestLogin")
+                .birthday(LocalDate.of(1964, 6, 11))
+                .build());
+
+        assertEquals(filmController.suggestFilms("go"), List.of("The Godfather", "The Gold Rush"));
+        assertEquals(filmController.suggestFilms("fra"), List.of("Francis Ford Coppola"));
+
+        filmController.addLike(2, 1);
+
+        assertEquals(filmController.suggestFilms("THE"), List.of("The Gold Rush", "The Godfather"));
+
+        filmController.deleteFilm(1);
+
+        assertEquals(filmController.suggestFilms("go"), List.of("The Gold Rush"));
+        assertEquals(filmController.suggestFilms("fra").size(), 0);
+    }
+
+    @Test
+    public void shouldGetFilmPageWithTopReviewsAndAuthors() {
+        filmController.createFilm(Film.builder()
+                .name("test film name")
+                .description("description")
+                .duration(100)
+                .releaseDate(LocalDate.of(1967, 3, 25))
+                .mpa(Mpa.builder().id(1).build())
+                .build());
+        for (int i = 1; i <= 3; i++) {
+            userStorage.createUser(User.builder()
+                    .email("tester" + i + "@yandex.ru")
+                    .name("Test name " + i)
+                    .login("ValidTestLogin" + i)
+                    .birthday(LocalDate.of(1964, 6, 11))
+                    .build());
+        }
+        for (int userId : List.of(1, 3, 3)) {
+            reviewsController.createReview(Review.builder()
+                    .content("review of user " + userId)
+                    .isPositive(true)
+                    .userId(userId)
+                    .filmId(1)
+                    .build());
+        }
+        reviewsController.addLikeReview(2, 1);
+
+        FilmPage page = filmController.getFilmPage(1, 2);
+
+        assertEquals(1, page.getFilm().getId());
+        assertEquals(List.of(2, 1), page.getReviews().stream()
+                .map(Review::getReviewId)
+                .collect(Collectors.toList()));
+        assertEquals(List.of(1, 3), page.getAuthors().stream()
+                .map(User::getId)
+                .collect(Collectors.toList()));
+
+        NotFoundException exception = assertThrows(NotFoundException.class, () -> filmController.getFilmPage(999, 2));
+        assertEquals("Фильма с таким id не существует.", exception.getMessage());
+    }
 }
@@ -61,4 +61,10 @@ public class GenreControllerTest {
         NotFoundException exception = assertThrows(NotFoundException.class, () -> genreController.getGenreById(999));
         assertEquals("Жанра с таким id не существует.", exception.getMessage());
     }
+
+    @Test
+    public void shouldThrowExceptionIfGenreIdNotPositive() {
+        NotFoundException exception = assertThrows(NotFoundException.class, () -> genreController.getGenreById(0));
+        assertEquals("Жанра с таким id не существует.", exception.getMessage());
+    }
 }
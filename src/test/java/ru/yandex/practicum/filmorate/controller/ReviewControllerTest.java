@@ -0,0 +1,186 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.review.CachedReviewStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class ReviewControllerTest {
+    private final ReviewsController reviewsController;
+    private final UserController userController;
+    private final FilmController filmController;
+    private final CachedReviewStorage cachedReviewStorage;
+
+    @Test
+    public void shouldRankReviewsByUsefulnessAfterVotes() {
+        createUsers(3);
+        createFilm();
+        createReview(1, 1);
+        createReview(2, 1);
+        createReview(3, 1);
+
+        reviewsController.addLikeReview(2, 1);
+        reviewsController.addLikeReview(2, 3);
+        reviewsController.addDislikeReview(1, 2);
+        reviewsController.addLikeReview(3, 1);
+        reviewsController.addLikeReview(3, 2);
+        reviewsController.removeLikeReview(3, 2);
+
+        assertEquals(List.of(2, 3, 1), reviewIds(reviewsController.getReviews(1, 10, null).getBody()));
+        assertEquals(2, reviewsController.getReviewById(2).getUseful());
+        assertEquals(1, reviewsController.getReviewById(3).getUseful());
+        assertEquals(-1, reviewsController.getReviewById(1).getUseful());
+
+        reviewsController.removeDislikeReview(1, 2);
+
+        assertEquals(0, reviewsController.getReviewById(1).getUseful());
+    }
+
+    @Test
+    public void shouldCountOneVotePerUser() {
+        createUsers(2);
+        createFilm();
+        createReview(1, 1);
+
+        reviewsController.addLikeReview(1, 2);
+        reviewsController.addLikeReview(1, 2);
+
+        assertEquals(1, reviewsController.getReviewById(1).getUseful());
+
+        reviewsController.addDislikeReview(1, 2);
+
+        assertEquals(-1, reviewsController.getReviewById(1).getUseful());
+
+        reviewsController.removeLikeReview(1, 2);
+
+        assertEquals(-1, reviewsController.getReviewById(1).getUseful());
+
+        reviewsController.removeDislikeReview(1, 2);
+
+        assertEquals(0, reviewsController.getReviewById(1).getUseful());
+    }
+
+    @Test
+    public void shouldPageReviewsWithCursor() {
+        createUsers(3);
+        createFilm();
+        for (int i = 0; i < 5; i++) {
+            createReview(1, 1);
+        }
+        reviewsController.addLikeReview(4, 2);
+        reviewsController.addLikeReview(4, 3);
+        reviewsController.addLikeReview(2, 2);
+        reviewsController.addDislikeReview(1, 2);
+
+        ResponseEntity<List<Review>> firstPage = reviewsController.getReviews(1, 2, null);
+        String cursor = firstPage.getHeaders().getFirst("X-Next-Cursor");
+        ResponseEntity<List<Review>> secondPage = reviewsController.getReviews(1, 2, cursor);
+        ResponseEntity<List<Review>> lastPage = reviewsController.getReviews(1, 2,
+                secondPage.getHeaders().getFirst("X-Next-Cursor"));
+
+        assertEquals(List.of(4, 2), reviewIds(firstPage.getBody()));
+        assertEquals(List.of(3, 5), reviewIds(secondPage.getBody()));
+        assertEquals(List.of(1), reviewIds(lastPage.getBody()));
+        assertNull(lastPage.getHeaders().getFirst("X-Next-Cursor"));
+
+        ValidationException exception = assertThrows(ValidationException.class,
+                () -> reviewsController.getReviews(1, 2, "not a cursor"));
+        assertEquals("Некорректный курсор страницы.", exception.getMessage());
+    }
+
+    @Test
+    public void shouldKeepCachedTopReviewsInOrder() {
+        createUsers(3);
+        createFilm();
+        createReview(1, 1);
+        createReview(2, 1);
+
+        assertEquals(List.of(1, 2), reviewIds(reviewsController.getReviews(1, 10, null).getBody()));
+        long misses = cachedReviewStorage.getMisses();
+
+        reviewsController.addLikeReview(2, 1);
+        createReview(3, 1);
+        reviewsController.addLikeReview(3, 1);
+        reviewsController.addLikeReview(3, 2);
+        reviewsController.removeReview(1);
+
+        List<Review> reviews = reviewsController.getReviews(1, 10, null).getBody();
+
+        assertEquals(List.of(3, 2), reviewIds(reviews));
+        assertEquals(2, reviews.get(0).getUseful());
+        assertEquals(misses, cachedReviewStorage.getMisses());
+    }
+
+    @Test
+    public void shouldUpdateUsefulnessAfterVoterDeleted() {
+        createUsers(3);
+        createFilm();
+        createReview(1, 1);
+        reviewsController.addLikeReview(1, 2);
+        reviewsController.addLikeReview(1, 3);
+
+        assertEquals(List.of(1), reviewIds(reviewsController.getReviews(1, 10, null).getBody()));
+
+        userController.deleteUser(3);
+
+        assertEquals(1, reviewsController.getReviewById(1).getUseful());
+        assertEquals(1, reviewsController.getReviews(1, 10, null).getBody().get(0).getUseful());
+    }
+
+    private List<Integer> reviewIds(List<Review> reviews) {
+        return reviews.stream()
+                .map(Review::getReviewId)
+                .collect(Collectors.toList());
+    }
+
+    private void createUsers(int count) {
+        for (int i = 1; i <= count; i++) {
+            userController.createUser(User.builder()
+                    .email("tester" + i + "@yandex.ru")
+                    .name("Test name " + i)
+                    .login("ValidTestLogin" + i)
+                    .birthday(LocalDate.of(1964, 6, 11))
+                    .build());
+        }
+    }
+
+    private void createFilm() {
+        filmController.createFilm(Film.builder()
+                .name("test film name")
+                .description("description")
+                .duration(100)
+                .releaseDate(LocalDate.of(1967, 3, 25))
+                .mpa(Mpa.builder().id(1).build())
+                .build());
+    }
+
+    private void createReview(int userId, int filmId) {
+        reviewsController.createReview(Review.builder()
+                .content("review of user " + userId)
+                .isPositive(true)
+                .userId(userId)
+                .filmId(filmId)
+                .build());
+    }
+}
@@ -5,17 +5,26 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.enums.Operation;
 import ru.yandex.practicum.filmorate.exception.IllegalAddFriendException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Feed;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.feed.BufferedFeedStorage;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @SpringBootTest
@@ -24,6 +33,9 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
 public class UserControllerTest {
     private final UserController userController;
+    private final FilmController filmController;
+    private final RecommendationService recommendationService;
+    private final BufferedFeedStorage bufferedFeedStorage;
 
     @Test
     public void shouldAddUserWithValidFields() {
@@ -43,7 +55,7 @@ public class UserControllerTest {
                 .build();
         userController.createUser(user2);
 
-        List<User> usersFromController = new ArrayList<>(userController.getAllUsers());
+        List<User> usersFromController = new ArrayList<>(userController.getAllUsers(0, 100, false).getBody());
 
         assertEquals(usersFromController.size(), 2);
 
@@ -73,7 +85,7 @@ public class UserControllerTest {
                 .build();
         ValidationException exception = assertThrows(ValidationException.class, () -> userController.createUser(user));
         assertEquals("Неправильный формат логина.", exception.getMessage());
-        assertEquals(userController.getAllUsers().size(), 0);
+        assertEquals(userController.getAllUsers(0, 100, false).getBody().size(), 0);
     }
 
     @Test
@@ -96,7 +108,7 @@ public class UserControllerTest {
                 .build();
         userController.updateUser(newUser);
 
-        List<User> usersFromController = new ArrayList<>(userController.getAllUsers());
+        List<User> usersFromController = new ArrayList<>(userController.getAllUsers(0, 100, false).getBody());
 
         assertEquals(usersFromController.size(), 1);
 
@@ -130,7 +142,7 @@ public class UserControllerTest {
 
         NotFoundException exception = assertThrows(NotFoundException.class, () -> userController.updateUser(newUser));
         assertEquals("Пользователя с таким id не существует.", exception.getMessage());
-        assertEquals(userController.getAllUsers().size(), 1);
+        assertEquals(userController.getAllUsers(0, 100, false).getBody().size(), 1);
     }
 
     @Test
@@ -152,7 +164,7 @@ public class UserControllerTest {
                 .birthday(LocalDate.of(1984, 9, 4))
                 .build();
         userController.createUser(user2);
-        List<User> usersFromController = new ArrayList<>(userController.getAllUsers());
+        List<User> usersFromController = new ArrayList<>(userController.getAllUsers(0, 100, false).getBody());
 
         assertEquals(usersFromController.size(), 2);
 
@@ -174,7 +186,7 @@ public class UserControllerTest {
 
     @Test
     public void shouldGetEmptyIfNoUsers() {
-        List<User> usersFromController = new ArrayList<>(userController.getAllUsers());
+        List<User> usersFromController = new ArrayList<>(userController.getAllUsers(0, 100, false).getBody());
 
         assertEquals(usersFromController.size(), 0);
     }
@@ -533,12 +545,12 @@ public class UserControllerTest {
                 .build();
         userController.createUser(user3);
 
-        List<User> usersFromController = userController.getAllUsers();
+        List<User> usersFromController = userController.getAllUsers(0, 100, false).getBody();
 
         assertEquals(usersFromController.size(), 3);
 
         userController.deleteUser(2);
-        usersFromController = userController.getAllUsers();
+        usersFromController = userController.getAllUsers(0, 100, false).getBody();
 
         assertEquals(usersFromController.size(), 2);
 
@@ -560,13 +572,204 @@ public class UserControllerTest {
 
     @Test
     public void shouldDeleteUserNotFound() {
-        List<User> usersFromController = userController.getAllUsers();
+        List<User> usersFromController = userController.getAllUsers(0, 100, false).getBody();
 
         assertEquals(usersFromController.size(), 0);
 
         userController.deleteUser(999);
-        usersFromController = userController.getAllUsers();
+        usersFromController = userController.getAllUsers(0, 100, false).getBody();
 
         assertEquals(usersFromController.size(), 0);
     }
+
+    @Test
+    public void shouldGetUsersByPages() {
+        for (int i = 1; i <= 3; i++) {
+            userController.createUser(User.builder()
+                    .email("tester" + i + "@yandex.ru")
+                    .name("Test name " + i)
+                    .login("ValidTestLogin" + i)
+                    .birthday(LocalDate.of(1984, 9, 4))
+                    .build());
+        }
+
+        ResponseEntity<List<User>> firstPage = userController.getAllUsers(0, 2, false);
+        String cursor = firstPage.getHeaders().getFirst("X-Next-Cursor");
+        ResponseEntity<List<User>> secondPage = userController.getAllUsers(Integer.parseInt(cursor), 2, false);
+
+        assertEquals(firstPage.getBody().size(), 2);
+        assertEquals(cursor, "2");
+        assertEquals(secondPage.getBody().size(), 1);
+        assertEquals(secondPage.getBody().get(0).getId(), 3);
+        assertNull(secondPage.getHeaders().getFirst("X-Next-Cursor"));
+        assertEquals(userController.getAllUsers(0, 2, true).getBody().size(), 3);
+    }
+
+    @Test
+    public void shouldThrowExceptionIfPageSizeNotValid() {
+        ValidationException exception = assertThrows(ValidationException.class,
+                () -> userController.getAllUsers(0, 0, false));
+        assertEquals("Размер страницы должен быть от 1 до " + UserService.MAX_PAGE_SIZE, exception.getMessage());
+    }
+
+    @Test
+    public void shouldRecommendFilmsOfMostSimilarUsers() {
+        for (int i = 1; i <= 4; i++) {
+            filmController.createFilm(Film.builder()
+                    .name("test film name " + i)
+                    .description("description")
+                    .duration(100)
+                    .releaseDate(LocalDate.of(1967, 3, 25))
+                    .mpa(Mpa.builder().id(1).build())
+                    .build());
+        }
+        for (int i = 1; i <= 3; i++) {
+            userController.createUser(User.builder()
+                    .email("tester" + i + "@yandex.ru")
+                    .name("Test name " + i)
+                    .login("ValidTestLogin" + i)
+                    .birthday(LocalDate.of(1964, 6, 11))
+                    .build());
+        }
+        filmController.addLike(1, 1);
+        filmController.addLike(2, 1);
+        filmController.addLike(1, 2);
+        filmController.addLike(2, 2);
+        filmController.addLike(3, 2);
+        filmController.addLike(1, 3);
+        filmController.addLike(4, 3);
+
+        List<Film> recommendations = userController.receiveFilmRecommendations(1);
+
+        assertEquals(recommendations.size(), 2);
+        assertEquals(recommendations.get(0).getId(), 3);
+        assertEquals(recommendations.get(1).getId(), 4);
+
+        filmController.removeLike(3, 2);
+        userController.deleteUser(3);
+
+        assertEquals(userController.receiveFilmRecommendations(1).size(), 0);
+        assertEquals(userController.receiveFilmRecommendations(999).size(), 0);
+    }
+
+    @Test
+    public void shouldServePrecomputedRecommendationsWithoutLikedFilms() {
+        for (int i = 1; i <= 3; i++) {
+            filmController.createFilm(Film.builder()
+                    .name("test film name " + i)
+                    .description("description")
+                    .duration(100)
+                    .releaseDate(LocalDate.of(1967, 3, 25))
+                    .mpa(Mpa.builder().id(1).build())
+                    .build());
+        }
+        for (int i = 1; i <= 2; i++) {
+            userController.createUser(User.builder()
+                    .email("tester" + i + "@yandex.ru")
+                    .name("Test name " + i)
+                    .login("ValidTestLogin" + i)
+                    .birthday(LocalDate.of(1964, 6, 11))
+                    .build());
+        }
+        filmController.addLike(1, 1);
+        filmController.addLike(1, 2);
+        filmController.addLike(2, 2);
+        filmController.addLike(3, 2);
+
+        recommendationService.recompute();
+        filmController.addLike(2, 1);
+
+        List<Film> recommendations = userController.receiveFilmRecommendations(1);
+
+        assertEquals(recommendations.size(), 1);
+        assertEquals(recommendations.get(0).getId(), 3);
+
+        filmController.deleteFilm(3);
+
+        assertEquals(userController.receiveFilmRecommendations(1).size(), 0);
+    }
+
+    @Test
+    public void shouldRecomputeRecommendationsWhenAllPrecomputedFilmsLiked() {
+        for (int i = 1; i <= 3; i++) {
+            filmController.createFilm(Film.builder()
+                    .name("test film name " + i)
+                    .description("description")
+                    .duration(100)
+                    .releaseDate(LocalDate.of(1967, 3, 25))
+                    .mpa(Mpa.builder().id(1).build())
+                    .build());
+            userController.createUser(User.builder()
+                    .email("tester" + i + "@yandex.ru")
+                    .name("Test name " + i)
+                    .login("ValidTestLogin" + i)
+                    .birthday(LocalDate.of(1964, 6, 11))
+                    .build());
+        }
+        filmController.addLike(1, 1);
+        filmController.addLike(1, 2);
+        filmController.addLike(2, 2);
+        filmController.addLike(2, 3);
+        filmController.addLike(3, 3);
+
+        recommendationService.recompute();
+        filmController.addLike(2, 1);
+
+        List<Film> recommendations = userController.receiveFilmRecommendations(1);
+
+        assertEquals(recommendations.size(), 1);
+        assertEquals(recommendations.get(0).getId(), 3);
+    }
+
+    @Test
+    public void shouldGetFriendsEventsInTimeline() {
+        for (int i = 1; i <= 3; i++) {
+            userController.createUser(User.builder()
+                    .email("tester" + i + "@yandex.ru")
+                    .name("Test name " + i)
+                    .login("ValidTestLogin" + i)
+                    .birthday(LocalDate.of(1964, 6, 11))
+                    .build());
+        }
+        userController.addFriend(2, 1);
+        userController.addFriend(1, 3);
+        userController.removeFriend(1, 3);
+        bufferedFeedStorage.flush();
+
+        List<Feed> timeline = userController.getTimeline(2, Long.MAX_VALUE, 100).getBody();
+
+        assertEquals(timeline.size(), 2);
+        assertEquals(timeline.get(0).getUserId(), 1);
+        assertEquals(timeline.get(0).getOperation(), Operation.REMOVE);
+        assertEquals(timeline.get(1).getOperation(), Operation.ADD);
+        assertEquals(userController.getTimeline(2, timeline.get(0).getEventId(), 100).getBody().size(), 1);
+        assertEquals(userController.getTimeline(3, Long.MAX_VALUE, 100).getBody().size(), 0);
+
+        userController.removeFriend(2, 1);
+
+        assertEquals(userController.getTimeline(2, Long.MAX_VALUE, 100).getBody().size(), 0);
+    }
+
+    @Test
+    public void shouldAddEarlierEventsOfNewFriendToTimeline() {
+        for (int i = 1; i <= 3; i++) {
+            userController.createUser(User.builder()
+                    .email("tester" + i + "@yandex.ru")
+                    .name("Test name " + i)
+                    .login("ValidTestLogin" + i)
+                    .birthday(LocalDate.of(1964, 6, 11))
+                    .build());
+        }
+        userController.addFriend(1, 3);
+        userController.removeFriend(1, 3);
+        userController.addFriend(2, 1);
+        bufferedFeedStorage.flush();
+
+        List<Feed> timeline = userController.getTimeline(2, Long.MAX_VALUE, 100).getBody();
+
+        assertEquals(timeline.size(), 2);
+        assertEquals(timeline.get(0).getUserId(), 1);
+        assertEquals(timeline.get(0).getOperation(), Operation.REMOVE);
+        assertEquals(timeline.get(1).getOperation(), Operation.ADD);
+    }
 }